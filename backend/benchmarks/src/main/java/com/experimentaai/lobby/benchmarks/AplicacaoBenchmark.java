@@ -0,0 +1,21 @@
+package com.experimentaai.lobby.benchmarks;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Contexto Spring da aplicação sem a janela de status (Swing) e sem servidor web,
+ * usado pelos benchmarks que exercitam o PedidoService completo (banco, store, journal e eventos).
+ */
+@SpringBootApplication(scanBasePackages = "com.experimentaai.lobby")
+@ComponentScan(basePackages = "com.experimentaai.lobby", excludeFilters = @ComponentScan.Filter(
+        type = FilterType.REGEX,
+        pattern = {"com\\.experimentaai\\.lobby\\.ui\\..*", ".*StatusWindowRunner", ".*LobbyPedidosApplication",
+                "com\\.experimentaai\\.lobby\\.benchmarks\\..*"}))
+@EntityScan("com.experimentaai.lobby")
+@EnableJpaRepositories("com.experimentaai.lobby")
+public class AplicacaoBenchmark {
+}
@@ -0,0 +1,70 @@
+package com.experimentaai.lobby.benchmarks;
+
+import com.experimentaai.lobby.dto.PedidoResponseDTO;
+import com.experimentaai.lobby.mapper.PedidoJsonCodec;
+import com.experimentaai.lobby.service.CacheService;
+import com.experimentaai.lobby.service.GroupCommitJournal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gravação (temp + fsync + rename) e leitura do snapshot de pedidos em disco.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheServiceBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int tamanhoFila;
+
+    @Param({"SEMPRE", "SISTEMA"})
+    private GroupCommitJournal.PoliticaFsync politicaFsync;
+
+    private Path home;
+    private CacheService cacheService;
+    private List<PedidoResponseDTO> pedidos;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        home = DadosBenchmark.usarHomeTemporario();
+        cacheService = new CacheService(DadosBenchmark.objectMapper(), new PedidoJsonCodec(DadosBenchmark.objectMapper()), politicaFsync, 100, 2, new SimpleMeterRegistry());
+        pedidos = DadosBenchmark.gerarPedidos(tamanhoFila);
+        cacheService.salvarCachePedidos(pedidos);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        cacheService.encerrar();
+        DadosBenchmark.apagar(home);
+    }
+
+    @Benchmark
+    public boolean salvarCachePedidos() {
+        return cacheService.salvarCachePedidos(pedidos);
+    }
+
+    @Benchmark
+    public Object carregarCachePedidos() {
+        return cacheService.carregarCachePedidos();
+    }
+}
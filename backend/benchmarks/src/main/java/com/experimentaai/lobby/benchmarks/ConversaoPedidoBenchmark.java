@@ -0,0 +1,83 @@
+package com.experimentaai.lobby.benchmarks;
+
+import com.experimentaai.lobby.dto.PedidoResponseDTO;
+import com.experimentaai.lobby.mapper.PedidoJsonCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leitura e escrita de listas de pedidos em JSON: o PedidoJsonCodec (streaming) contra o databind
+ * do Jackson com ObjectReader/ObjectWriter prontos, e contra a leitura antiga como Object.class
+ * (árvore de LinkedHashMap, que ainda precisava ser convertida campo a campo).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversaoPedidoBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int tamanhoFila;
+
+    private ObjectMapper objectMapper;
+    private PedidoJsonCodec pedidoJsonCodec;
+    private ObjectReader leitorLista;
+    private ObjectWriter escritorLista;
+    private List<PedidoResponseDTO> pedidos;
+    private byte[] json;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        objectMapper = DadosBenchmark.objectMapper();
+        pedidoJsonCodec = new PedidoJsonCodec(objectMapper);
+        leitorLista = objectMapper.readerForListOf(PedidoResponseDTO.class);
+        escritorLista = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, PedidoResponseDTO.class));
+        pedidos = DadosBenchmark.gerarPedidos(tamanhoFila);
+        json = pedidoJsonCodec.escreverLista(pedidos);
+    }
+
+    @Benchmark
+    public List<PedidoResponseDTO> lerListaCodec() throws IOException {
+        return pedidoJsonCodec.lerLista(json);
+    }
+
+    @Benchmark
+    public List<PedidoResponseDTO> lerListaDatabind() throws IOException {
+        return leitorLista.readValue(json);
+    }
+
+    @Benchmark
+    public Object lerArvoreDeMapas() throws IOException {
+        return objectMapper.readValue(json, Object.class);
+    }
+
+    @Benchmark
+    public byte[] escreverListaCodec() {
+        return pedidoJsonCodec.escreverLista(pedidos);
+    }
+
+    @Benchmark
+    public byte[] escreverListaDatabind() throws IOException {
+        return escritorLista.writeValueAsBytes(pedidos);
+    }
+}
@@ -0,0 +1,76 @@
+package com.experimentaai.lobby.benchmarks;
+
+import com.experimentaai.lobby.config.JacksonConfig;
+import com.experimentaai.lobby.dto.PedidoResponseDTO;
+import com.experimentaai.lobby.entity.StatusPedido;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Geração de dados e utilitários comuns aos benchmarks.
+ */
+final class DadosBenchmark {
+
+    private DadosBenchmark() {
+    }
+
+    /**
+     * ObjectMapper configurado exatamente como o da aplicação.
+     */
+    static ObjectMapper objectMapper() {
+        return new JacksonConfig().objectMapper();
+    }
+
+    /**
+     * Gera pedidos com ids 1..quantidade, em ordem de criação, alternando PREPARANDO e PRONTO.
+     */
+    static List<PedidoResponseDTO> gerarPedidos(int quantidade) {
+        List<PedidoResponseDTO> pedidos = new ArrayList<>(quantidade);
+        LocalDateTime inicio = LocalDateTime.now().minusHours(1);
+        for (int i = 1; i <= quantidade; i++) {
+            LocalDateTime criacao = inicio.plusNanos(i * 1_000L);
+            pedidos.add(PedidoResponseDTO.builder()
+                    .id((long) i)
+                    .nomeCliente("Cliente " + i)
+                    .status(i % 2 == 0 ? StatusPedido.PRONTO : StatusPedido.PREPARANDO)
+                    .dataCriacao(criacao)
+                    .dataAtualizacao(criacao)
+                    .build());
+        }
+        return pedidos;
+    }
+
+    /**
+     * Cria um diretório temporário e aponta user.home para ele, para que o CacheService
+     * nunca grave no cache real da máquina.
+     */
+    static Path usarHomeTemporario() {
+        try {
+            Path home = Files.createTempDirectory("lobby-benchmark");
+            System.setProperty("user.home", home.toString());
+            return home;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void apagar(Path diretorio) {
+        if (diretorio == null || !Files.exists(diretorio)) {
+            return;
+        }
+        try (Stream<Path> arquivos = Files.walk(diretorio)) {
+            arquivos.sorted(Comparator.reverseOrder()).forEach(arquivo -> arquivo.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.experimentaai.lobby.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Ponto de entrada do benchmarks.jar. Aceita as mesmas opções de linha de comando do JMH,
+ * mas por padrão grava os resultados em JSON (jmh-resultados.json) para comparar entre versões.
+ */
+public class ExecutarBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions linhaDeComando = new CommandLineOptions(args);
+        Options opcoes = new OptionsBuilder()
+                .parent(linhaDeComando)
+                .resultFormat(linhaDeComando.getResultFormat().orElse(ResultFormatType.JSON))
+                .result(linhaDeComando.getResult().orElse("jmh-resultados.json"))
+                .build();
+        new Runner(opcoes).run();
+    }
+}
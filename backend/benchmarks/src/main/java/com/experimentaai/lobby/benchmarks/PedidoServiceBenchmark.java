@@ -0,0 +1,106 @@
+package com.experimentaai.lobby.benchmarks;
+
+import com.experimentaai.lobby.dto.PedidoRequestDTO;
+import com.experimentaai.lobby.dto.PedidoResponseDTO;
+import com.experimentaai.lobby.entity.StatusPedido;
+import com.experimentaai.lobby.service.PedidoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Criar, marcar como pronto e remover pedidos pelo PedidoService real (H2, store,
+ * journal e publicação de eventos), com a fila já contendo tamanhoFila pedidos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PedidoServiceBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int tamanhoFila;
+
+    private Path home;
+    private ConfigurableApplicationContext contexto;
+    private PedidoService pedidoService;
+    private PedidoRequestDTO requisicao;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        home = DadosBenchmark.usarHomeTemporario();
+        System.setProperty("java.awt.headless", "true");
+        contexto = new SpringApplicationBuilder(AplicacaoBenchmark.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.experimentaai=WARN")
+                // Sem janelas de espera: cada operação mede o código, não o tempo parado esperando o lote.
+                // Como argumentos, porque properties() só define padrões e o application.properties prevalece
+                .run("--lobby.pedidos.coalescencia.janela-ms=0",
+                        "--lobby.cache.journal.janela-ms=0");
+        pedidoService = contexto.getBean(PedidoService.class);
+        List<PedidoResponseDTO> pedidos = DadosBenchmark.gerarPedidos(tamanhoFila);
+        pedidoService.restaurarCache(pedidos);
+        requisicao = PedidoRequestDTO.builder().nomeCliente("Cliente benchmark").build();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+        DadosBenchmark.apagar(home);
+    }
+
+    /**
+     * Ciclo de vida completo de um pedido; a fila volta ao tamanho original ao final.
+     */
+    @Benchmark
+    public PedidoResponseDTO criarMarcarProntoRemover() {
+        PedidoResponseDTO criado = pedidoService.criarPedido(requisicao);
+        PedidoResponseDTO pronto = pedidoService.atualizarStatusParaPronto(criado.getId());
+        pedidoService.removerPedido(criado.getId());
+        return pronto;
+    }
+
+    /**
+     * O mesmo ciclo em 4 threads, cada uma com seus pedidos: mede o agrupamento de mutações
+     * concorrentes em lotes pelo sequenciador.
+     */
+    @Benchmark
+    @Threads(4)
+    public PedidoResponseDTO criarMarcarProntoRemoverConcorrente() {
+        return criarMarcarProntoRemover();
+    }
+
+    @Benchmark
+    public List<PedidoResponseDTO> listarPedidosAtivos() {
+        return pedidoService.listarPedidosAtivos();
+    }
+
+    @Benchmark
+    public List<PedidoResponseDTO> listarPedidosProntos() {
+        return pedidoService.listarPedidosPorStatus(StatusPedido.PRONTO);
+    }
+}
@@ -0,0 +1,93 @@
+package com.experimentaai.lobby.benchmarks;
+
+import com.experimentaai.lobby.dto.PedidoEventoDTO;
+import com.experimentaai.lobby.dto.PedidoResponseDTO;
+import com.experimentaai.lobby.entity.StatusPedido;
+import com.experimentaai.lobby.mapper.PedidoJsonCodec;
+import com.experimentaai.lobby.service.PedidoEventoSerializado;
+import com.experimentaai.lobby.service.PedidoSnapshotCache;
+import com.experimentaai.lobby.service.PedidoStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de montar os payloads SSE: evento delta, snapshot serializado a cada envio
+ * (comportamento antigo, por assinante) e snapshot reaproveitado do PedidoSnapshotCache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializacaoSseBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int tamanhoFila;
+
+    private ObjectMapper objectMapper;
+    private PedidoJsonCodec pedidoJsonCodec;
+    private PedidoStore pedidoStore;
+    private PedidoSnapshotCache snapshotCache;
+    private PedidoEventoDTO eventoDelta;
+    private PedidoEventoDTO eventoSnapshot;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        objectMapper = DadosBenchmark.objectMapper();
+        pedidoJsonCodec = new PedidoJsonCodec(objectMapper);
+        pedidoStore = new PedidoStore();
+        List<PedidoResponseDTO> pedidos = DadosBenchmark.gerarPedidos(tamanhoFila);
+        pedidoStore.carregar(pedidos);
+        snapshotCache = new PedidoSnapshotCache(pedidoStore, pedidoJsonCodec);
+        eventoDelta = PedidoEventoDTO.builder()
+                .tipo(PedidoEventoDTO.Tipo.PEDIDO_CRIADO)
+                .versao(1)
+                .pedido(PedidoResponseDTO.builder()
+                        .id((long) tamanhoFila + 1)
+                        .nomeCliente("Cliente benchmark")
+                        .status(StatusPedido.PREPARANDO)
+                        .dataCriacao(LocalDateTime.now())
+                        .dataAtualizacao(LocalDateTime.now())
+                        .build())
+                .timestamp(System.currentTimeMillis())
+                .build();
+        eventoSnapshot = PedidoEventoDTO.builder()
+                .tipo(PedidoEventoDTO.Tipo.PEDIDOS_SNAPSHOT)
+                .versao(pedidoStore.getVersao())
+                .pedidos(pedidos)
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    @Benchmark
+    public byte[] serializarEventoDelta() {
+        return pedidoJsonCodec.escreverEvento(eventoDelta);
+    }
+
+    @Benchmark
+    public byte[] serializarSnapshotCompleto() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(eventoSnapshot);
+    }
+
+    @Benchmark
+    public PedidoEventoSerializado montarSnapshotDoCache() {
+        return snapshotCache.obterEvento();
+    }
+}
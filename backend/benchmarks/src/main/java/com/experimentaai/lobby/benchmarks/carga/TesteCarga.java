@@ -0,0 +1,283 @@
+package com.experimentaai.lobby.benchmarks.carga;
+
+import com.experimentaai.lobby.benchmarks.AplicacaoBenchmark;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Gerador de carga: simula telas (assinantes SSE) e caixas (clientes que criam, marcam como
+ * pronto e removem pedidos) contra a aplicação, e mede a latência de ponta a ponta entre o
+ * início da mutação e a entrega do evento SSE em cada tela.
+ *
+ * Uso (a partir de backend/benchmarks, depois de mvn package):
+ *   java -cp target/benchmarks.jar com.experimentaai.lobby.benchmarks.carga.TesteCarga \
+ *        --telas=12 --caixas=4 --taxa=20 --duracao=60
+ *
+ * Sem --url, a aplicação é iniciada no próprio processo, em porta aleatória e com cache em
+ * diretório temporário. Com --url=http://host:porta, usa um servidor já em execução.
+ */
+public class TesteCarga {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    // Momento (nanoTime) do início de cada mutação, pela chave de correlação do evento
+    private final Map<String, Long> inicioMutacoes = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Long> latenciasSseMicros = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Long> latenciasHttpMicros = new ConcurrentLinkedQueue<>();
+    private final AtomicLong sequencia = new AtomicLong();
+    private final AtomicLong mutacoes = new AtomicLong();
+    private final AtomicLong erros = new AtomicLong();
+    private final AtomicLong eventosRecebidos = new AtomicLong();
+
+    private final String url;
+    private final int telas;
+    private final int caixas;
+    private final double taxa;
+    private final int duracaoSegundos;
+
+    // Corpos das conexões SSE abertas, fechados no fim do teste
+    private final List<Stream<String>> conexoesSse = new CopyOnWriteArrayList<>();
+
+    private volatile boolean medindo;
+
+    public TesteCarga(String url, int telas, int caixas, double taxa, int duracaoSegundos) {
+        this.url = url;
+        this.telas = telas;
+        this.caixas = caixas;
+        this.taxa = taxa;
+        this.duracaoSegundos = duracaoSegundos;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opcoes = lerOpcoes(args);
+        int telas = Integer.parseInt(opcoes.getOrDefault("telas", "12"));
+        int caixas = Integer.parseInt(opcoes.getOrDefault("caixas", "4"));
+        double taxa = Double.parseDouble(opcoes.getOrDefault("taxa", "20"));
+        int duracao = Integer.parseInt(opcoes.getOrDefault("duracao", "30"));
+
+        ConfigurableApplicationContext contexto = null;
+        Path home = null;
+        String url = opcoes.get("url");
+        if (url == null) {
+            home = Files.createTempDirectory("lobby-carga");
+            System.setProperty("user.home", home.toString());
+            System.setProperty("java.awt.headless", "true");
+            // Argumentos de linha de comando têm precedência sobre o application.properties
+            contexto = new SpringApplicationBuilder(AplicacaoBenchmark.class)
+                    .run("--server.port=0",
+                            "--server.address=127.0.0.1",
+                            "--spring.main.banner-mode=off",
+                            "--spring.jpa.show-sql=false",
+                            // Conexões SSE ainda abertas expiram no encerramento do contexto
+                            "--logging.level.org.springframework.web.servlet.mvc.support=ERROR");
+            url = "http://localhost:" + contexto.getEnvironment().getProperty("local.server.port");
+        }
+
+        try {
+            new TesteCarga(url, telas, caixas, taxa, duracao).executar();
+        } finally {
+            if (contexto != null) {
+                contexto.close();
+            }
+            if (home != null) {
+                try (Stream<Path> arquivos = Files.walk(home)) {
+                    arquivos.sorted((a, b) -> b.compareTo(a)).forEach(arquivo -> arquivo.toFile().delete());
+                }
+            }
+        }
+    }
+
+    public void executar() throws InterruptedException {
+        System.out.printf("🚦 Teste de carga em %s: %d telas, %d caixas, %.1f pedidos/s por %d s%n",
+                url, telas, caixas, taxa, duracaoSegundos);
+
+        List<Thread> assinantes = new ArrayList<>();
+        for (int i = 0; i < telas; i++) {
+            Thread tela = new Thread(this::assinarSse, "tela-" + i);
+            tela.setDaemon(true);
+            tela.start();
+            assinantes.add(tela);
+        }
+        // Dá tempo de as telas receberem o snapshot inicial antes de medir
+        Thread.sleep(1000);
+
+        medindo = true;
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(caixas);
+        long periodoNanos = (long) (TimeUnit.SECONDS.toNanos(1) * caixas / taxa);
+        for (int i = 0; i < caixas; i++) {
+            executor.scheduleAtFixedRate(this::cicloCaixa, i * periodoNanos / caixas, periodoNanos, TimeUnit.NANOSECONDS);
+        }
+        long inicio = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(duracaoSegundos));
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        // Aguarda os últimos eventos chegarem às telas
+        Thread.sleep(1000);
+        medindo = false;
+
+        relatorio(segundos);
+        conexoesSse.forEach(Stream::close);
+        for (Thread tela : assinantes) {
+            tela.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * Um caixa: cria um pedido, marca como pronto e remove (três mutações, três eventos SSE).
+     */
+    private void cicloCaixa() {
+        String nome = "Carga " + sequencia.incrementAndGet();
+        try {
+            inicioMutacoes.put("C:" + nome, System.nanoTime());
+            JsonNode criado = enviar("POST", "/api/pedidos", "{\"nomeCliente\":\"" + nome + "\"}");
+            long id = criado.get("id").asLong();
+
+            inicioMutacoes.put("P:" + id, System.nanoTime());
+            enviar("PUT", "/api/pedidos/" + id + "/pronto", null);
+
+            inicioMutacoes.put("R:" + id, System.nanoTime());
+            enviar("DELETE", "/api/pedidos/" + id, null);
+        } catch (IOException | RuntimeException e) {
+            erros.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private JsonNode enviar(String metodo, String caminho, String corpo) throws IOException, InterruptedException {
+        HttpRequest.Builder requisicao = HttpRequest.newBuilder(URI.create(url + caminho))
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .method(metodo, corpo != null ? HttpRequest.BodyPublishers.ofString(corpo) : HttpRequest.BodyPublishers.noBody());
+        long inicio = System.nanoTime();
+        HttpResponse<String> resposta = http.send(requisicao.build(), HttpResponse.BodyHandlers.ofString());
+        latenciasHttpMicros.add(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - inicio));
+        if (resposta.statusCode() >= 300) {
+            throw new IOException(metodo + " " + caminho + " respondeu " + resposta.statusCode());
+        }
+        mutacoes.incrementAndGet();
+        return resposta.body().isEmpty() ? null : objectMapper.readTree(resposta.body());
+    }
+
+    /**
+     * Uma tela: mantém a conexão SSE e registra a latência de cada evento delta recebido.
+     */
+    private void assinarSse() {
+        HttpRequest requisicao = HttpRequest.newBuilder(URI.create(url + "/api/cache/pedidos/stream"))
+                .header("Accept", "text/event-stream")
+                .build();
+        try {
+            Stream<String> linhas = http.send(requisicao, HttpResponse.BodyHandlers.ofLines()).body();
+            conexoesSse.add(linhas);
+            linhas.filter(linha -> linha.startsWith("data:"))
+                    .forEach(linha -> registrarEvento(linha.substring(5)));
+        } catch (IOException | UncheckedIOException e) {
+            // Conexões fechadas ao encerrar o servidor no fim do teste não contam como erro
+            if (medindo) {
+                erros.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void registrarEvento(String json) {
+        long chegada = System.nanoTime();
+        eventosRecebidos.incrementAndGet();
+        if (!medindo) {
+            return;
+        }
+        try {
+            JsonNode evento = objectMapper.readTree(json);
+            if ("PEDIDOS_LOTE".equals(evento.path("tipo").asText())) {
+                // Rajadas de mutações chegam coalescidas em um único evento
+                evento.path("eventos").forEach(delta -> registrarLatencia(delta, chegada));
+            } else {
+                registrarLatencia(evento, chegada);
+            }
+        } catch (IOException e) {
+            erros.incrementAndGet();
+        }
+    }
+
+    private void registrarLatencia(JsonNode evento, long chegada) {
+        JsonNode pedido = evento.get("pedido");
+        if (pedido == null) {
+            return;
+        }
+        String chave = switch (evento.get("tipo").asText()) {
+            case "PEDIDO_CRIADO" -> "C:" + pedido.get("nomeCliente").asText();
+            case "PEDIDO_PRONTO" -> "P:" + pedido.get("id").asLong();
+            case "PEDIDO_REMOVIDO" -> "R:" + pedido.get("id").asLong();
+            default -> null;
+        };
+        Long inicio = chave != null ? inicioMutacoes.get(chave) : null;
+        if (inicio != null) {
+            latenciasSseMicros.add(TimeUnit.NANOSECONDS.toMicros(chegada - inicio));
+        }
+    }
+
+    private void relatorio(double segundos) {
+        System.out.println();
+        System.out.printf("📊 Mutações concluídas: %d (%.1f/s), erros: %d, eventos SSE recebidos: %d%n",
+                mutacoes.get(), mutacoes.get() / segundos, erros.get(), eventosRecebidos.get());
+        System.out.printf("📊 Entregas SSE medidas: %d (esperado ~%d = mutações × telas)%n",
+                latenciasSseMicros.size(), mutacoes.get() * telas);
+        imprimirPercentis("HTTP (requisição → resposta)", latenciasHttpMicros);
+        imprimirPercentis("Ponta a ponta (mutação → evento SSE na tela)", latenciasSseMicros);
+    }
+
+    private static void imprimirPercentis(String titulo, ConcurrentLinkedQueue<Long> amostras) {
+        long[] valores = amostras.stream().mapToLong(Long::longValue).sorted().toArray();
+        if (valores.length == 0) {
+            System.out.printf("⏱️ %s: sem amostras%n", titulo);
+            return;
+        }
+        System.out.printf("⏱️ %s: p50 %.2f ms | p99 %.2f ms | máx %.2f ms (%d amostras)%n", titulo,
+                percentil(valores, 0.50) / 1000.0, percentil(valores, 0.99) / 1000.0,
+                valores[valores.length - 1] / 1000.0, valores.length);
+    }
+
+    private static long percentil(long[] ordenados, double p) {
+        int indice = (int) Math.ceil(p * ordenados.length) - 1;
+        return ordenados[Math.max(0, Math.min(indice, ordenados.length - 1))];
+    }
+
+    private static Map<String, String> lerOpcoes(String[] args) {
+        Map<String, String> opcoes = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Opção inválida: " + arg + " (use --nome=valor)");
+            }
+            int igual = arg.indexOf('=');
+            opcoes.put(arg.substring(2, igual), arg.substring(igual + 1));
+        }
+        return opcoes;
+    }
+}
@@ -0,0 +1,46 @@
+package com.experimentaai.lobby.config;
+
+import com.experimentaai.lobby.entity.StatusPedido;
+import com.experimentaai.lobby.service.CacheService;
+import com.experimentaai.lobby.service.PedidoLongPollService;
+import com.experimentaai.lobby.service.PedidoStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Gauges de estado da fila de pedidos, expostos pelo Actuator (/actuator/prometheus).
+ * Os timers e contadores ficam nos próprios serviços (PedidoService, CacheService e
+ * PedidoEventDispatcher), junto do código que medem.
+ */
+@Configuration
+public class MetricasConfig {
+
+    @Bean
+    public MeterBinder metricasFilaPedidos(PedidoStore pedidoStore) {
+        return registry -> {
+            for (StatusPedido status : StatusPedido.values()) {
+                Gauge.builder("lobby.pedidos.fila", pedidoStore, store -> store.tamanhoPorStatus(status))
+                        .description("Pedidos ativos por status")
+                        .tag("status", status.name())
+                        .register(registry);
+            }
+            Gauge.builder("lobby.pedidos.versao", pedidoStore, PedidoStore::getVersao)
+                    .description("Versão atual do conjunto de pedidos (incrementa a cada mutação)")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder metricasCachePedidos(CacheService cacheService, PedidoLongPollService longPollService) {
+        return registry -> {
+            Gauge.builder("lobby.cache.journal.eventos", cacheService, CacheService::getEventosNoJournal)
+                    .description("Eventos no journal desde a última compactação")
+                    .register(registry);
+            Gauge.builder("lobby.longpoll.esperas", longPollService, PedidoLongPollService::getTotalEsperas)
+                    .description("Requisições de long-polling aguardando mudanças")
+                    .register(registry);
+        };
+    }
+}
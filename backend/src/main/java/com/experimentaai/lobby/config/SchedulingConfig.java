@@ -0,0 +1,12 @@
+package com.experimentaai.lobby.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita tarefas agendadas (ex.: compactação periódica do journal de pedidos).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,16 +1,29 @@
 package com.experimentaai.lobby.controller;
 
+import com.experimentaai.lobby.dto.PedidoEventoDTO;
+import com.experimentaai.lobby.dto.PedidoResponseDTO;
+import com.experimentaai.lobby.mapper.PedidoJsonCodec;
 import com.experimentaai.lobby.service.CacheService;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.experimentaai.lobby.service.PedidoEventDispatcher;
+import com.experimentaai.lobby.service.PedidoLongPollService;
+import com.experimentaai.lobby.service.PedidoService;
+import com.experimentaai.lobby.service.PedidoSnapshotCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @RestController
@@ -19,20 +32,56 @@ import java.util.Map;
 public class CacheController {
 
     private final CacheService cacheService;
-    private final ObjectMapper objectMapper;
+    private final PedidoService pedidoService;
+    private final PedidoEventDispatcher eventDispatcher;
+    private final PedidoLongPollService longPollService;
+    private final PedidoJsonCodec pedidoJsonCodec;
+
+    @Value("${lobby.cache.long-poll.timeout-ms:25000}")
+    private long longPollTimeoutMs;
+
+    @Value("${lobby.cache.long-poll.timeout-maximo-ms:60000}")
+    private long longPollTimeoutMaximoMs;
 
     @GetMapping("/pedidos")
-    public ResponseEntity<Object> carregarCachePedidos() {
-        Object pedidos = cacheService.carregarCachePedidos();
-        if (pedidos != null) {
-            return ResponseEntity.ok(pedidos);
+    public ResponseEntity<byte[]> carregarCachePedidos(WebRequest request) {
+        // Sem mudanças desde o ETag do cliente: 304 sem corpo e sem serialização
+        if (request.checkNotModified(pedidoService.etagPedidosAtivos())) {
+            return null;
         }
-        return ResponseEntity.noContent().build();
+        // Servido direto do store em memória, com o JSON serializado uma única vez por versão
+        PedidoSnapshotCache.SnapshotSerializado snapshot = pedidoService.obterPedidosAtivosSerializados();
+        return ResponseEntity.ok()
+            .eTag(pedidoService.etagPedidosAtivos(snapshot))
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(snapshot.pedidosJson());
+    }
+
+    /**
+     * Exporta os pedidos ativos em JSON indentado, para leitura humana (o snapshot em disco é binário).
+     */
+    @GetMapping("/pedidos/exportar")
+    public ResponseEntity<byte[]> exportarCachePedidos() {
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"pedidos.json\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(pedidoService.exportarPedidosAtivosJson());
     }
 
+    /**
+     * Restaura os pedidos ativos a partir de um array JSON (ex.: o arquivo de /pedidos/exportar).
+     * Conteúdo que não seja um array de pedidos válido é recusado com 400, sem alterar nada.
+     */
     @PostMapping("/pedidos")
-    public ResponseEntity<Void> salvarCachePedidos(@RequestBody Object pedidos) {
-        cacheService.salvarCachePedidos(pedidos);
+    public ResponseEntity<?> salvarCachePedidos(@RequestBody byte[] corpo) {
+        List<PedidoResponseDTO> pedidos;
+        try {
+            pedidos = pedidoJsonCodec.lerLista(corpo);
+        } catch (IOException e) {
+            log.warn("⚠️ Restauração de cache recusada: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("erro", "JSON de pedidos inválido: " + e.getMessage()));
+        }
+        pedidoService.restaurarCache(pedidos);
         return ResponseEntity.ok().build();
     }
 
@@ -53,52 +102,61 @@ public class CacheController {
         return ResponseEntity.ok(Map.of("diretorio", cacheService.getCacheDirectoryPath()));
     }
 
+    /**
+     * Polling condicional: com If-None-Match (ETag) responde 304; com os parâmetros epoca e versao
+     * iguais aos atuais responde apenas houveMudancas=false, sem a lista de pedidos. Uma versao
+     * sem epoca, ou de outra execução do servidor, conta como mudança (as versões recomeçam no restart).
+     * O parâmetro ultimaModificacao é mantido por compatibilidade e não é mais usado.
+     */
     @GetMapping("/pedidos/status")
-    public ResponseEntity<Map<String, Object>> verificarMudancasPedidos(@RequestParam(required = false) Long ultimaModificacao) {
-        Object pedidos = cacheService.carregarCachePedidos();
-        Map<String, Object> response = new java.util.HashMap<>();
+    public ResponseEntity<?> verificarMudancasPedidos(@RequestParam(required = false) Long ultimaModificacao,
+                                                     @RequestParam(required = false) Long versao,
+                                                     @RequestParam(required = false) String epoca,
+                                                     WebRequest request) {
+        if (request.checkNotModified(pedidoService.etagPedidosAtivos())) {
+            return null;
+        }
+        long versaoAtual = pedidoService.getVersaoPedidosAtivos();
+        if (naVersaoAtual(epoca, versao, versaoAtual)) {
+            return semMudancas(versaoAtual);
+        }
 
-        if (pedidos == null) {
+        PedidoSnapshotCache.SnapshotSerializado snapshot = pedidoService.obterPedidosAtivosSerializados();
+        if (!pedidoService.temPedidosAtivos() && !cacheService.existeCachePedidos()) {
+            Map<String, Object> response = new HashMap<>();
             response.put("houveMudancas", false);
             response.put("primeiraCarga", true);
+            response.put("epoca", pedidoService.getEpocaPedidosAtivos());
+            response.put("versao", snapshot.versao());
             return ResponseEntity.ok(response);
         }
 
-        // Verificar se houve mudanças baseado na última modificação
-        // Por enquanto, sempre retorna true se houver pedidos (simplificação)
-        response.put("houveMudancas", true);
-        response.put("primeiraCarga", false);
-        response.put("dados", pedidos);
-
-        return ResponseEntity.ok(response);
+        return comMudancas(snapshot);
     }
 
     @GetMapping(value = "/pedidos/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter streamPedidosChanges() {
-        log.info("📡 Nova conexão SSE estabelecida");
+    public SseEmitter streamPedidosChanges(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @RequestParam(required = false) String ultimoEventoId) {
+        // O EventSource envia Last-Event-ID ao reconectar sozinho; o frontend usa o parâmetro ao recriar a conexão
+        String retomarDe = lastEventId != null ? lastEventId : ultimoEventoId;
+        log.info("📡 Nova conexão SSE estabelecida{}", retomarDe != null ? " (retomando de " + retomarDe + ")" : "");
         SseEmitter emitter = new SseEmitter(Long.MAX_VALUE);
 
-        // Adicionar listener para mudanças nos pedidos
-        CacheService.PedidoChangeListener listener = pedidos -> {
+        // Listener recebe um snapshot inicial (ou só os deltas perdidos, ao retomar) e depois eventos delta (PEDIDO_CRIADO, PEDIDO_PRONTO, PEDIDO_REMOVIDO)
+        // Executado nas threads do dispatcher, nunca na thread da requisição que fez a mutação
+        PedidoEventDispatcher.PedidoChangeListener listener = evento -> {
             try {
-                log.info("📢 Enviando atualização SSE para cliente conectado");
-                
-                Map<String, Object> eventData = new java.util.HashMap<>();
-                eventData.put("tipo", "PEDIDOS_ATUALIZADOS");
-                eventData.put("dados", pedidos);
-                eventData.put("timestamp", System.currentTimeMillis());
-
-                // Serializar para JSON string
-                String jsonData = objectMapper.writeValueAsString(eventData);
-                
-                log.debug("📤 Dados SSE serializados: {}", jsonData.substring(0, Math.min(200, jsonData.length())));
-
+                // JSON já serializado uma única vez e compartilhado entre todos os assinantes
                 SseEmitter.SseEventBuilder event = SseEmitter.event()
-                    .name("pedidos-update")
-                    .data(jsonData);
+                    .id(pedidoService.idDoEvento(evento))
+                    .name(evento.evento().getTipo() == PedidoEventoDTO.Tipo.ESTATISTICAS_PREPARO
+                        ? "estatisticas-update" : "pedidos-update")
+                    .data(evento.json(), MediaType.APPLICATION_JSON);
 
                 emitter.send(event);
-                log.info("✅ Evento SSE enviado com sucesso");
+                log.debug("✅ Evento SSE {} (versão {}) enviado: {} bytes",
+                    evento.evento().getTipo(), evento.evento().getVersao(), evento.json().length);
 
             } catch (IOException e) {
                 log.error("❌ Erro ao enviar evento SSE: {}", e.getMessage(), e);
@@ -106,23 +164,79 @@ public class CacheController {
             }
         };
 
-        cacheService.addPedidoChangeListener(listener);
+        // Se o cliente ficar lento demais, o dispatcher o desconecta e ele reconecta com um snapshot novo
+        pedidoService.inscreverListener(listener, emitter::complete, retomarDe);
 
         // Remover listener quando a conexão for fechada
         emitter.onCompletion(() -> {
             log.info("📡 Conexão SSE finalizada (completion)");
-            cacheService.removePedidoChangeListener(listener);
+            pedidoService.cancelarListener(listener);
         });
         emitter.onTimeout(() -> {
             log.warn("📡 Conexão SSE expirada (timeout)");
-            cacheService.removePedidoChangeListener(listener);
+            pedidoService.cancelarListener(listener);
         });
         emitter.onError((throwable) -> {
             log.error("📡 Erro na conexão SSE: {}", throwable.getMessage(), throwable);
-            cacheService.removePedidoChangeListener(listener);
+            pedidoService.cancelarListener(listener);
         });
 
         return emitter;
     }
-}
 
+    /**
+     * Long-polling para clientes que não conseguem manter SSE: a requisição fica estacionada
+     * (de forma assíncrona) até a versão dos pedidos mudar ou o timeout expirar.
+     * Com mudança, responde como /pedidos/status; sem mudança, houveMudancas=false.
+     * A versão do cliente vem dos parâmetros epoca e versao ou do If-None-Match (ETag);
+     * uma versao de outra época (ou sem epoca) conta como mudança.
+     */
+    @GetMapping("/pedidos/aguardar")
+    public DeferredResult<ResponseEntity<?>> aguardarMudancasPedidos(
+            @RequestParam(required = false) Long versao,
+            @RequestParam(required = false) String epoca,
+            @RequestParam(required = false) Long timeoutMs,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        long timeout = Math.min(timeoutMs != null ? Math.max(timeoutMs, 1000L) : longPollTimeoutMs, longPollTimeoutMaximoMs);
+        long versaoAtual = pedidoService.getVersaoPedidosAtivos();
+        String etagAtual = "\"" + pedidoService.etagPedidosAtivos() + "\"";
+        boolean clienteAtualizado = versao != null ? naVersaoAtual(epoca, versao, versaoAtual) : etagAtual.equals(ifNoneMatch);
+
+        DeferredResult<ResponseEntity<?>> resultado = new DeferredResult<>(timeout, () -> semMudancas(versaoAtual));
+        if (!clienteAtualizado) {
+            resultado.setResult(comMudancas(pedidoService.obterPedidosAtivosSerializados()));
+            return resultado;
+        }
+
+        CompletableFuture<PedidoSnapshotCache.SnapshotSerializado> espera = longPollService.aguardarVersaoDiferenteDe(versaoAtual);
+        espera.thenAccept(snapshot -> resultado.setResult(comMudancas(snapshot)));
+        // Timeout, erro ou cliente desconectado: remove a espera
+        resultado.onCompletion(() -> espera.cancel(false));
+        return resultado;
+    }
+
+    private ResponseEntity<?> comMudancas(PedidoSnapshotCache.SnapshotSerializado snapshot) {
+        return ResponseEntity.ok()
+            .eTag(pedidoService.etagPedidosAtivos(snapshot))
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(pedidoService.obterStatusPedidosAtivos(snapshot));
+    }
+
+    private ResponseEntity<?> semMudancas(long versao) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("houveMudancas", false);
+        response.put("primeiraCarga", false);
+        response.put("epoca", pedidoService.getEpocaPedidosAtivos());
+        response.put("versao", versao);
+        return ResponseEntity.ok(response);
+    }
+
+    private boolean naVersaoAtual(String epoca, Long versao, long versaoAtual) {
+        return versao != null && versao == versaoAtual && pedidoService.getEpocaPedidosAtivos().equals(epoca);
+    }
+
+    @GetMapping("/pedidos/stream/metricas")
+    public ResponseEntity<Map<String, Object>> metricasStreamPedidos() {
+        return ResponseEntity.ok(eventDispatcher.getMetricas());
+    }
+}
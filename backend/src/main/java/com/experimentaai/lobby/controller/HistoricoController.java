@@ -0,0 +1,37 @@
+package com.experimentaai.lobby.controller;
+
+import com.experimentaai.lobby.dto.HistoricoAgregadoDTO;
+import com.experimentaai.lobby.service.PedidoHistoricoService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/historico")
+@RequiredArgsConstructor
+public class HistoricoController {
+
+    private final PedidoHistoricoService historicoService;
+
+    /**
+     * Agregados dos pedidos que saíram da fila, por dia ou hora (ex.: ?de=2024-05-01&ate=2024-05-07&granularidade=HORA).
+     * Sem datas, considera só o dia atual.
+     */
+    @GetMapping("/agregados")
+    public ResponseEntity<?> agregar(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate,
+                                     @RequestParam(defaultValue = "DIA") HistoricoAgregadoDTO.Granularidade granularidade) {
+        LocalDate hoje = LocalDate.now();
+        LocalDate fim = ate != null ? ate : (de != null && de.isAfter(hoje) ? de : hoje);
+        LocalDate inicio = de != null ? de : fim;
+        try {
+            return ResponseEntity.ok(historicoService.agregar(inicio, fim, granularidade));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("erro", e.getMessage()));
+        }
+    }
+}
@@ -1,23 +1,38 @@
 package com.experimentaai.lobby.controller;
 
+import com.experimentaai.lobby.dto.EstatisticasPreparoDTO;
+import com.experimentaai.lobby.dto.PaginaPedidosDTO;
+import com.experimentaai.lobby.dto.PedidoIdsRequestDTO;
+import com.experimentaai.lobby.dto.PedidoLoteRequestDTO;
+import com.experimentaai.lobby.dto.PedidoLoteRespostaDTO;
 import com.experimentaai.lobby.dto.PedidoRequestDTO;
 import com.experimentaai.lobby.dto.PedidoResponseDTO;
 import com.experimentaai.lobby.entity.StatusPedido;
+import com.experimentaai.lobby.mapper.PedidoJsonCodec;
 import com.experimentaai.lobby.service.PedidoService;
+import com.fasterxml.jackson.core.JsonGenerator;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/pedidos")
 @RequiredArgsConstructor
 public class PedidoController {
 
+    private static final int TAMANHO_PAGINA_STREAMING = 200;
+
     private final PedidoService pedidoService;
+    private final PedidoJsonCodec pedidoJsonCodec;
 
     @PostMapping
     public ResponseEntity<PedidoResponseDTO> criarPedido(@Valid @RequestBody PedidoRequestDTO requestDTO) {
@@ -25,10 +40,51 @@ public class PedidoController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    /**
+     * Transmite todos os pedidos como um array JSON escrito aos poucos (página por página),
+     * sem montar a lista inteira em memória.
+     */
     @GetMapping
-    public ResponseEntity<List<PedidoResponseDTO>> listarTodosPedidos() {
-        List<PedidoResponseDTO> pedidos = pedidoService.listarTodosPedidos();
-        return ResponseEntity.ok(pedidos);
+    public ResponseEntity<StreamingResponseBody> listarTodosPedidos() {
+        StreamingResponseBody corpo = saida -> {
+            try (JsonGenerator gerador = pedidoJsonCodec.criarGerador(saida)) {
+                gerador.writeStartArray();
+                pedidoService.percorrerTodosPedidos(TAMANHO_PAGINA_STREAMING, pagina -> {
+                    try {
+                        for (PedidoResponseDTO pedido : pagina) {
+                            pedidoJsonCodec.escreverPedido(gerador, pedido);
+                        }
+                        gerador.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                gerador.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(corpo);
+    }
+
+    /**
+     * Estatísticas de preparo e vazão da janela recente (também enviadas pelo SSE como estatisticas-update).
+     */
+    @GetMapping("/estatisticas")
+    public ResponseEntity<EstatisticasPreparoDTO> obterEstatisticas() {
+        return ResponseEntity.ok(pedidoService.obterEstatisticasPreparo());
+    }
+
+    /**
+     * Paginação por cursor: devolve até limite pedidos e o cursor da próxima página.
+     */
+    @GetMapping("/pagina")
+    public ResponseEntity<?> listarPedidosPaginados(@RequestParam(defaultValue = "50") int limite,
+                                                    @RequestParam(required = false) String cursor) {
+        try {
+            PaginaPedidosDTO pagina = pedidoService.listarPedidosPaginados(cursor, limite);
+            return ResponseEntity.ok(pagina);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("erro", e.getMessage()));
+        }
     }
 
     @GetMapping("/status/{status}")
@@ -69,5 +125,29 @@ public class PedidoController {
             throw e; // Re-lançar para que o Spring trate como erro 500
         }
     }
-}
 
+    /**
+     * Cria vários pedidos de uma vez (um evento e uma gravação para o lote inteiro).
+     */
+    @PostMapping("/lote")
+    public ResponseEntity<PedidoLoteRespostaDTO> criarPedidos(@Valid @RequestBody PedidoLoteRequestDTO requestDTO) {
+        PedidoLoteRespostaDTO response = pedidoService.criarPedidos(requestDTO.getPedidos());
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    /**
+     * Marca vários pedidos como prontos; o resultado de cada id (inclusive não encontrado) vem na resposta.
+     */
+    @PutMapping("/lote/pronto")
+    public ResponseEntity<PedidoLoteRespostaDTO> marcarComoProntos(@Valid @RequestBody PedidoIdsRequestDTO requestDTO) {
+        return ResponseEntity.ok(pedidoService.marcarPedidosComoProntos(requestDTO.getIds()));
+    }
+
+    /**
+     * Remove vários pedidos; o resultado de cada id (inclusive não encontrado) vem na resposta.
+     */
+    @DeleteMapping("/lote")
+    public ResponseEntity<PedidoLoteRespostaDTO> removerPedidos(@Valid @RequestBody PedidoIdsRequestDTO requestDTO) {
+        return ResponseEntity.ok(pedidoService.removerPedidos(requestDTO.getIds()));
+    }
+}
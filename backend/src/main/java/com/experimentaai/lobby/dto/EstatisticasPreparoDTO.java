@@ -0,0 +1,37 @@
+package com.experimentaai.lobby.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Estatísticas de preparo (criação até pronto) dos pedidos que ficaram prontos nos últimos
+ * janelaMinutos, e vazão (pedidos por minuto) nos últimos janelaVazaoMinutos.
+ * Percentis vêm de um histograma com faixas de ~10%; os tempos ficam nulos sem pedidos prontos na janela.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstatisticasPreparoDTO {
+
+    private int janelaMinutos;
+    private long prontos;
+    private Long tempoPreparoMedioMs;
+    private Long p50Ms;
+    private Long p90Ms;
+    private Long p95Ms;
+    private Long p99Ms;
+    private Long tempoPreparoMaximoMs;
+
+    private int janelaVazaoMinutos;
+    private double criadosPorMinuto;
+    private double prontosPorMinuto;
+    // Pedidos prontos em cada minuto da janela, do mais antigo ao atual
+    private List<Long> prontosPorMinutoSerie;
+
+    private long calculadoEm;
+}
@@ -0,0 +1,50 @@
+package com.experimentaai.lobby.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Agregados do histórico de pedidos entre duas datas (inclusive), por dia ou por hora da remoção.
+ * Só períodos com pedidos aparecem; os tempos de preparo (criação até pronto) consideram
+ * apenas os pedidos que chegaram a ficar prontos.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistoricoAgregadoDTO {
+
+    public enum Granularidade {
+        DIA,
+        HORA
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Periodo {
+
+        private LocalDateTime inicio;
+        private long total;
+        private long removidos;
+        private long expirados;
+        private long prontos;
+        // Nulos quando nenhum pedido do período ficou pronto
+        private Long tempoPreparoMedioMs;
+        private Long tempoPreparoMinimoMs;
+        private Long tempoPreparoMaximoMs;
+    }
+
+    private LocalDate de;
+    private LocalDate ate;
+    private Granularidade granularidade;
+    private int segmentosLidos;
+    private List<Periodo> periodos;
+}
@@ -0,0 +1,22 @@
+package com.experimentaai.lobby.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Página de pedidos paginada por cursor (dataCriacao, id).
+ * proximoCursor é nulo quando não há mais pedidos depois desta página.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaPedidosDTO {
+
+    private List<PedidoResponseDTO> pedidos;
+    private String proximoCursor;
+}
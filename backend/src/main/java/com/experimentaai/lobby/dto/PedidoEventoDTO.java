@@ -0,0 +1,47 @@
+package com.experimentaai.lobby.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Evento de mutação de um pedido, usado no journal e no stream SSE.
+ * Cada evento delta carrega o pedido completo após a mutação, então reaplicar o
+ * mesmo evento mais de uma vez produz o mesmo estado. O evento PEDIDOS_SNAPSHOT
+ * carrega a lista inteira e serve para ressincronizar os clientes. O evento PEDIDOS_LOTE
+ * agrupa os deltas de uma rajada de mutações (ver janela de coalescência no PedidoService);
+ * sua versão é a do último delta do lote. O evento ESTATISTICAS_PREPARO só vai para o SSE
+ * (nunca para o journal) e leva a versão atual, sem alterar os pedidos.
+ * Um delta que tira um pedido da fila de preparo leva em previsoes a nova posição e previsão
+ * dos pedidos que estavam atrás dele.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PedidoEventoDTO {
+
+    public enum Tipo {
+        PEDIDO_CRIADO,
+        PEDIDO_PRONTO,
+        PEDIDO_REMOVIDO,
+        PEDIDOS_SNAPSHOT,
+        PEDIDOS_LOTE,
+        ESTATISTICAS_PREPARO
+    }
+
+    private Tipo tipo;
+    // Versão do conjunto de pedidos após este evento (monotônica dentro da execução)
+    private long versao;
+    private PedidoResponseDTO pedido;
+    private List<PedidoResponseDTO> pedidos;
+    private List<PedidoEventoDTO> eventos;
+    private List<PrevisaoFilaDTO> previsoes;
+    private EstatisticasPreparoDTO estatisticas;
+    private long timestamp;
+}
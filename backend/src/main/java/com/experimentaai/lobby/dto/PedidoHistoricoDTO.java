@@ -0,0 +1,33 @@
+package com.experimentaai.lobby.dto;
+
+import com.experimentaai.lobby.entity.StatusPedido;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pedido que saiu da fila, como gravado nos segmentos diários de histórico (uma linha JSON por pedido).
+ * dataPronto é nula se o pedido foi removido antes de ficar pronto.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoHistoricoDTO {
+
+    public enum Motivo {
+        REMOVIDO,
+        EXPIRADO
+    }
+
+    private Long id;
+    private String nomeCliente;
+    private StatusPedido status;
+    private Motivo motivo;
+    private LocalDateTime dataCriacao;
+    private LocalDateTime dataPronto;
+    private LocalDateTime dataRemocao;
+}
@@ -0,0 +1,25 @@
+package com.experimentaai.lobby.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Ids dos pedidos de uma operação em lote (marcar como pronto, remover).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoIdsRequestDTO {
+
+    @NotEmpty(message = "Informe ao menos um id de pedido")
+    @Size(max = 500, message = "No máximo 500 pedidos por lote")
+    private List<@NotNull(message = "Id de pedido não pode ser nulo") Long> ids;
+}
@@ -0,0 +1,25 @@
+package com.experimentaai.lobby.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Criação de vários pedidos em uma única requisição (POST /api/pedidos/lote).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoLoteRequestDTO {
+
+    @NotEmpty(message = "Informe ao menos um pedido")
+    @Size(max = 500, message = "No máximo 500 pedidos por lote")
+    private List<@Valid PedidoRequestDTO> pedidos;
+}
@@ -0,0 +1,44 @@
+package com.experimentaai.lobby.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Resultado de uma operação em lote: um item por entrada da requisição, na mesma ordem.
+ * Todas as alterações do lote são aplicadas juntas (leitores veem o lote inteiro ou nada dele,
+ * uma linha no journal e um evento); versao é a versão dos pedidos logo após o lote.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoLoteRespostaDTO {
+
+    public enum Resultado {
+        CRIADO,
+        PRONTO,
+        REMOVIDO,
+        INALTERADO,
+        NAO_ENCONTRADO
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+
+        private Long id;
+        private Resultado resultado;
+        // Estado do pedido após o lote (o último estado, se REMOVIDO); nulo se não encontrado
+        private PedidoResponseDTO pedido;
+    }
+
+    private long versao;
+    private int alterados;
+    private List<Item> resultados;
+}
@@ -1,6 +1,7 @@
 package com.experimentaai.lobby.dto;
 
 import com.experimentaai.lobby.entity.StatusPedido;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -19,5 +20,10 @@ public class PedidoResponseDTO {
     private StatusPedido status;
     private LocalDateTime dataCriacao;
     private LocalDateTime dataAtualizacao;
+    // Só em pedidos PREPARANDO: posição na fila (1 = próximo) e previsão de quando fica pronto
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer posicaoFila;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private LocalDateTime previsaoPronto;
 }
 
@@ -0,0 +1,23 @@
+package com.experimentaai.lobby.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Nova posição e previsão de um pedido em preparo que mudou de lugar na fila
+ * (vai no evento delta que causou a mudança).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PrevisaoFilaDTO {
+
+    private Long id;
+    private Integer posicaoFila;
+    private LocalDateTime previsaoPronto;
+}
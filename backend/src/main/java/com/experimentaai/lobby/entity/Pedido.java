@@ -9,15 +9,15 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "pedidos")
+@Table(name = "pedidos", indexes = @Index(name = "idx_pedidos_data_criacao_id", columnList = "dataCriacao, id"))
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Pedido {
 
+    // Atribuído pelo PedidoService ao criar o pedido no store; o banco é gravado depois, em lote
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @Column(nullable = false, length = 100)
@@ -34,8 +34,12 @@ public class Pedido {
 
     @PrePersist
     protected void onCreate() {
-        dataCriacao = LocalDateTime.now();
-        dataAtualizacao = LocalDateTime.now();
+        if (dataCriacao == null) {
+            dataCriacao = LocalDateTime.now();
+        }
+        if (dataAtualizacao == null) {
+            dataAtualizacao = dataCriacao;
+        }
     }
 
     @PreUpdate
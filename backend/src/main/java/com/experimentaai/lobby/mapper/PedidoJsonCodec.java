@@ -0,0 +1,311 @@
+package com.experimentaai.lobby.mapper;
+
+import com.experimentaai.lobby.dto.PedidoEventoDTO;
+import com.experimentaai.lobby.dto.PedidoResponseDTO;
+import com.experimentaai.lobby.dto.PrevisaoFilaDTO;
+import com.experimentaai.lobby.entity.StatusPedido;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Leitura e escrita de pedidos e eventos de pedidos em JSON por streaming (JsonParser/JsonGenerator),
+ * direto para PedidoResponseDTO/PedidoEventoDTO, sem árvore intermediária de Map nem introspecção
+ * do databind a cada chamada.
+ *
+ * O formato é o mesmo do ObjectMapper do JacksonConfig (datas ISO-8601, campos na ordem dos DTOs),
+ * então o que um escreve o outro lê.
+ */
+@Component
+public class PedidoJsonCodec {
+
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private final JsonFactory fabrica;
+
+    public PedidoJsonCodec(ObjectMapper objectMapper) {
+        // A fábrica do ObjectMapper do Spring é thread-safe e reaproveita os buffers internos
+        this.fabrica = objectMapper.getFactory();
+    }
+
+    public JsonGenerator criarGerador(OutputStream saida) throws IOException {
+        return fabrica.createGenerator(saida);
+    }
+
+    public byte[] escreverLista(List<PedidoResponseDTO> pedidos) {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream(64 + pedidos.size() * 160);
+        try (JsonGenerator gerador = fabrica.createGenerator(saida)) {
+            escreverPedidos(gerador, pedidos);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao serializar lista de pedidos", e);
+        }
+        return saida.toByteArray();
+    }
+
+    /**
+     * Lista em JSON indentado, para leitura humana (exportação).
+     */
+    public byte[] escreverListaIndentada(List<PedidoResponseDTO> pedidos) {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream(64 + pedidos.size() * 200);
+        try (JsonGenerator gerador = fabrica.createGenerator(saida)) {
+            gerador.setPrettyPrinter(new DefaultPrettyPrinter());
+            escreverPedidos(gerador, pedidos);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao serializar lista de pedidos", e);
+        }
+        return saida.toByteArray();
+    }
+
+    public byte[] escreverEvento(PedidoEventoDTO evento) {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream(256);
+        try (JsonGenerator gerador = fabrica.createGenerator(saida)) {
+            escreverEvento(gerador, evento);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao serializar evento " + evento.getTipo(), e);
+        }
+        return saida.toByteArray();
+    }
+
+    public void escreverPedido(JsonGenerator gerador, PedidoResponseDTO pedido) throws IOException {
+        gerador.writeStartObject();
+        gerador.writeFieldName("id");
+        if (pedido.getId() != null) {
+            gerador.writeNumber(pedido.getId());
+        } else {
+            gerador.writeNull();
+        }
+        gerador.writeStringField("nomeCliente", pedido.getNomeCliente());
+        gerador.writeStringField("status", pedido.getStatus() != null ? pedido.getStatus().name() : null);
+        escreverData(gerador, "dataCriacao", pedido.getDataCriacao());
+        escreverData(gerador, "dataAtualizacao", pedido.getDataAtualizacao());
+        if (pedido.getPosicaoFila() != null) {
+            gerador.writeNumberField("posicaoFila", pedido.getPosicaoFila());
+        }
+        if (pedido.getPrevisaoPronto() != null) {
+            escreverData(gerador, "previsaoPronto", pedido.getPrevisaoPronto());
+        }
+        gerador.writeEndObject();
+    }
+
+    /**
+     * Lê um array JSON de pedidos. Lança IOException (JsonParseException) se o conteúdo
+     * não for um array de pedidos válido.
+     */
+    public List<PedidoResponseDTO> lerLista(byte[] json) throws IOException {
+        try (JsonParser parser = fabrica.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Esperado um array JSON de pedidos");
+            }
+            List<PedidoResponseDTO> pedidos = lerPedidos(parser);
+            if (parser.nextToken() != null) {
+                throw new JsonParseException(parser, "Conteúdo inesperado após o array de pedidos");
+            }
+            return pedidos;
+        }
+    }
+
+    public PedidoEventoDTO lerEvento(byte[] json) throws IOException {
+        return lerEvento(json, 0, json.length);
+    }
+
+    /**
+     * Lê um evento de um trecho do array (ex.: uma linha do journal), sem copiá-lo.
+     */
+    public PedidoEventoDTO lerEvento(byte[] json, int inicio, int tamanho) throws IOException {
+        try (JsonParser parser = fabrica.createParser(json, inicio, tamanho)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Esperado um objeto JSON de evento");
+            }
+            return lerEvento(parser);
+        }
+    }
+
+    private void escreverPedidos(JsonGenerator gerador, List<PedidoResponseDTO> pedidos) throws IOException {
+        gerador.writeStartArray();
+        for (PedidoResponseDTO pedido : pedidos) {
+            escreverPedido(gerador, pedido);
+        }
+        gerador.writeEndArray();
+    }
+
+    // Mesma ordem de campos e regra NON_NULL do PedidoEventoDTO serializado pelo databind
+    private void escreverEvento(JsonGenerator gerador, PedidoEventoDTO evento) throws IOException {
+        gerador.writeStartObject();
+        if (evento.getTipo() != null) {
+            gerador.writeStringField("tipo", evento.getTipo().name());
+        }
+        gerador.writeNumberField("versao", evento.getVersao());
+        if (evento.getPedido() != null) {
+            gerador.writeFieldName("pedido");
+            escreverPedido(gerador, evento.getPedido());
+        }
+        if (evento.getPedidos() != null) {
+            gerador.writeFieldName("pedidos");
+            escreverPedidos(gerador, evento.getPedidos());
+        }
+        if (evento.getEventos() != null) {
+            gerador.writeArrayFieldStart("eventos");
+            for (PedidoEventoDTO delta : evento.getEventos()) {
+                escreverEvento(gerador, delta);
+            }
+            gerador.writeEndArray();
+        }
+        if (evento.getPrevisoes() != null) {
+            // Não é lido de volta: as previsões são recalculadas ao carregar os pedidos
+            gerador.writeArrayFieldStart("previsoes");
+            for (PrevisaoFilaDTO previsao : evento.getPrevisoes()) {
+                gerador.writeStartObject();
+                gerador.writeNumberField("id", previsao.getId());
+                gerador.writeNumberField("posicaoFila", previsao.getPosicaoFila());
+                escreverData(gerador, "previsaoPronto", previsao.getPrevisaoPronto());
+                gerador.writeEndObject();
+            }
+            gerador.writeEndArray();
+        }
+        if (evento.getEstatisticas() != null) {
+            // Só vai para o SSE, nunca é lido de volta: fica com o databind
+            gerador.writeFieldName("estatisticas");
+            gerador.writeObject(evento.getEstatisticas());
+        }
+        gerador.writeNumberField("timestamp", evento.getTimestamp());
+        gerador.writeEndObject();
+    }
+
+    private static void escreverData(JsonGenerator gerador, String campo, LocalDateTime data) throws IOException {
+        gerador.writeStringField(campo, data != null ? FORMATO_DATA.format(data) : null);
+    }
+
+    // Com o parser no START_ARRAY; termina no END_ARRAY
+    private List<PedidoResponseDTO> lerPedidos(JsonParser parser) throws IOException {
+        List<PedidoResponseDTO> pedidos = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Esperado um objeto JSON de pedido");
+            }
+            pedidos.add(lerPedido(parser));
+        }
+        return pedidos;
+    }
+
+    // Com o parser no START_OBJECT; termina no END_OBJECT. Campos desconhecidos são ignorados.
+    private PedidoResponseDTO lerPedido(JsonParser parser) throws IOException {
+        PedidoResponseDTO pedido = new PedidoResponseDTO();
+        String campo;
+        while ((campo = parser.nextFieldName()) != null) {
+            if (parser.nextToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (campo) {
+                case "id" -> pedido.setId(lerLong(parser));
+                case "nomeCliente" -> pedido.setNomeCliente(parser.getText());
+                case "status" -> pedido.setStatus(lerStatus(parser));
+                case "dataCriacao" -> pedido.setDataCriacao(lerData(parser));
+                case "dataAtualizacao" -> pedido.setDataAtualizacao(lerData(parser));
+                case "posicaoFila" -> pedido.setPosicaoFila((int) lerLong(parser));
+                case "previsaoPronto" -> pedido.setPrevisaoPronto(lerData(parser));
+                default -> parser.skipChildren();
+            }
+        }
+        return pedido;
+    }
+
+    // Com o parser no START_OBJECT; termina no END_OBJECT
+    private PedidoEventoDTO lerEvento(JsonParser parser) throws IOException {
+        PedidoEventoDTO evento = new PedidoEventoDTO();
+        String campo;
+        while ((campo = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (campo) {
+                case "tipo" -> evento.setTipo(lerTipo(parser));
+                case "versao" -> evento.setVersao(lerLong(parser));
+                case "timestamp" -> evento.setTimestamp(lerLong(parser));
+                case "pedido" -> {
+                    exigir(parser, token, JsonToken.START_OBJECT);
+                    evento.setPedido(lerPedido(parser));
+                }
+                case "pedidos" -> {
+                    exigir(parser, token, JsonToken.START_ARRAY);
+                    evento.setPedidos(lerPedidos(parser));
+                }
+                case "eventos" -> {
+                    exigir(parser, token, JsonToken.START_ARRAY);
+                    List<PedidoEventoDTO> eventos = new ArrayList<>();
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        eventos.add(lerEvento(parser));
+                    }
+                    exigir(parser, parser.currentToken(), JsonToken.END_ARRAY);
+                    evento.setEventos(eventos);
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return evento;
+    }
+
+    private static void exigir(JsonParser parser, JsonToken atual, JsonToken esperado) throws JsonParseException {
+        if (atual != esperado) {
+            throw new JsonParseException(parser, "Esperado " + esperado + " mas encontrado " + atual);
+        }
+    }
+
+    // Aceita número ou texto numérico (caches antigos gravados por outros clientes)
+    private static long lerLong(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        try {
+            return Long.parseLong(parser.getText().trim());
+        } catch (NumberFormatException e) {
+            throw new JsonParseException(parser, "Número inválido: " + parser.getText(), e);
+        }
+    }
+
+    private static StatusPedido lerStatus(JsonParser parser) throws IOException {
+        try {
+            return StatusPedido.valueOf(parser.getText());
+        } catch (IllegalArgumentException e) {
+            throw new JsonParseException(parser, "Status de pedido inválido: " + parser.getText(), e);
+        }
+    }
+
+    private static PedidoEventoDTO.Tipo lerTipo(JsonParser parser) throws IOException {
+        try {
+            return PedidoEventoDTO.Tipo.valueOf(parser.getText());
+        } catch (IllegalArgumentException e) {
+            throw new JsonParseException(parser, "Tipo de evento inválido: " + parser.getText(), e);
+        }
+    }
+
+    private static LocalDateTime lerData(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            throw new JsonParseException(parser, "Data deve ser texto ISO-8601");
+        }
+        try {
+            return LocalDateTime.parse(parser.getText(), FORMATO_DATA);
+        } catch (DateTimeParseException e) {
+            throw new JsonParseException(parser, "Data inválida: " + parser.getText(), e);
+        }
+    }
+}
@@ -1,21 +1,12 @@
 package com.experimentaai.lobby.mapper;
 
-import com.experimentaai.lobby.dto.PedidoRequestDTO;
 import com.experimentaai.lobby.dto.PedidoResponseDTO;
 import com.experimentaai.lobby.entity.Pedido;
-import com.experimentaai.lobby.entity.StatusPedido;
 import org.springframework.stereotype.Component;
 
 @Component
 public class PedidoMapper {
 
-    public Pedido toEntity(PedidoRequestDTO dto) {
-        return Pedido.builder()
-                .nomeCliente(dto.getNomeCliente())
-                .status(StatusPedido.PREPARANDO)
-                .build();
-    }
-
     public PedidoResponseDTO toResponseDTO(Pedido pedido) {
         return PedidoResponseDTO.builder()
                 .id(pedido.getId())
@@ -26,4 +17,3 @@ public class PedidoMapper {
                 .build();
     }
 }
-
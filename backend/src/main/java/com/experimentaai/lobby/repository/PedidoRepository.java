@@ -2,9 +2,13 @@ package com.experimentaai.lobby.repository;
 
 import com.experimentaai.lobby.entity.Pedido;
 import com.experimentaai.lobby.entity.StatusPedido;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -13,5 +17,12 @@ public interface PedidoRepository extends JpaRepository<Pedido, Long> {
     List<Pedido> findByStatusOrderByDataCriacaoAsc(StatusPedido status);
     
     List<Pedido> findAllByOrderByDataCriacaoAsc();
-}
 
+    // Paginação por cursor (keyset): primeira página e páginas seguintes a (dataCriacao, id)
+    List<Pedido> findAllByOrderByDataCriacaoAscIdAsc(Pageable pageable);
+
+    @Query("SELECT p FROM Pedido p WHERE p.dataCriacao > :dataCriacao "
+            + "OR (p.dataCriacao = :dataCriacao AND p.id > :id) "
+            + "ORDER BY p.dataCriacao ASC, p.id ASC")
+    List<Pedido> findPaginaApos(@Param("dataCriacao") LocalDateTime dataCriacao, @Param("id") Long id, Pageable pageable);
+}
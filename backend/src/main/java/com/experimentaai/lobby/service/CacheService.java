@@ -1,48 +1,87 @@
 package com.experimentaai.lobby.service;
 
+import com.experimentaai.lobby.dto.PedidoEventoDTO;
+import com.experimentaai.lobby.dto.PedidoResponseDTO;
+import com.experimentaai.lobby.mapper.PedidoJsonCodec;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Serviço para gerenciar cache persistente em arquivos JSON.
+ * Serviço para gerenciar o cache persistente em arquivos: os pedidos ficam em um snapshot
+ * binário (pedidos.bin, ver PedidoSnapshotBinario) mais um journal de eventos em JSON Lines
+ * (pedidos.journal), compactado periodicamente no snapshot; a configuração de animação fica em JSON.
  * Usa ObjectMapper singleton injetado pelo Spring para evitar memory leaks.
  */
 @Slf4j
 @Service
 public class CacheService {
 
-    // Interface funcional para listeners de mudança nos pedidos
-    @FunctionalInterface
-    public interface PedidoChangeListener {
-        void onPedidosChanged(Object pedidos);
-    }
-
     private static final String APP_NAME = "LobbyPedidos";
     private static final String CACHE_DIR_NAME = "cache";
-    private static final String PEDIDOS_CACHE_FILE = "pedidos.json";
+    private static final String PEDIDOS_CACHE_FILE = "pedidos.bin";
+    // Snapshot em JSON das versões anteriores: lido uma vez e substituído pelo binário
+    private static final String PEDIDOS_CACHE_LEGADO_FILE = "pedidos.json";
+    private static final String CORROMPIDO_SUFFIX = ".corrompido";
+    private static final String PEDIDOS_JOURNAL_FILE = "pedidos.journal";
+    private static final String PEDIDOS_JOURNAL_COMPACTANDO_FILE = "pedidos.journal.compactando";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final byte[] QUEBRA_LINHA = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
     private static final String ANIMACAO_CONFIG_FILE = "animacao_config.json";
+    private static final String METRICA_ESCRITA = "lobby.cache.escrita";
+    private static final String METRICA_LEITURA = "lobby.cache.leitura";
+    private static final String ARQUIVO_SNAPSHOT = "snapshot";
+    private static final String ARQUIVO_JOURNAL = "journal";
 
     // ObjectMapper injetado como singleton do Spring (configurado em JacksonConfig)
     private final ObjectMapper objectMapper;
+    // Leitura tipada por streaming de pedidos e eventos (snapshot JSON antigo e journal)
+    private final PedidoJsonCodec pedidoJsonCodec;
     private final Path cacheDirectory;
 
-    // Lista de listeners para mudanças nos pedidos
-    private final List<PedidoChangeListener> pedidoChangeListeners = new java.util.concurrent.CopyOnWriteArrayList<>();
+    // Journal append-only de eventos de pedidos, gravado em lotes (group commit)
+    private final Object journalLock = new Object();
+    private final GroupCommitJournal journal;
+    private int eventosNoJournal;
+
+    // Métricas de I/O (latência e bytes) por arquivo: snapshot e journal
+    private final MeterRegistry meterRegistry;
 
     // Construtor com inicialização do diretório de cache
-    public CacheService(ObjectMapper objectMapper) {
+    public CacheService(ObjectMapper objectMapper,
+                        PedidoJsonCodec pedidoJsonCodec,
+                        @Value("${lobby.cache.journal.fsync:INTERVALO}") GroupCommitJournal.PoliticaFsync politicaFsync,
+                        @Value("${lobby.cache.journal.fsync-intervalo-ms:100}") long intervaloFsyncMs,
+                        @Value("${lobby.cache.journal.janela-ms:2}") long janelaGroupCommitMs,
+                        MeterRegistry meterRegistry) {
         this.objectMapper = objectMapper;
+        this.pedidoJsonCodec = pedidoJsonCodec;
+        this.meterRegistry = meterRegistry;
         this.cacheDirectory = getCacheDirectory();
         createCacheDirectoryIfNotExists();
+        this.journal = new GroupCommitJournal(cacheDirectory.resolve(PEDIDOS_JOURNAL_FILE),
+            politicaFsync, intervaloFsyncMs, janelaGroupCommitMs);
     }
 
     private Path getCacheDirectory() {
@@ -82,62 +121,285 @@ public class CacheService {
         }
     }
 
-    public void salvarCachePedidos(Object pedidos) {
+    /**
+     * Grava o snapshot completo de pedidos no formato binário (ver PedidoSnapshotBinario).
+     * Retorna false se a gravação falhar.
+     */
+    public boolean salvarCachePedidos(List<PedidoResponseDTO> pedidos) {
         try {
             Path filePath = cacheDirectory.resolve(PEDIDOS_CACHE_FILE);
-            
-            // Verificar se está tentando salvar uma lista vazia
-            if (pedidos instanceof List) {
-                List<?> lista = (List<?>) pedidos;
-                log.info("Tentando salvar cache de pedidos: {} pedidos encontrados", lista.size());
-                
-                // Se a lista estiver vazia, permitir salvar apenas se já existir cache
-                // Isso permite zerar o cache quando o último pedido é removido (ação de gestão)
-                if (lista.isEmpty()) {
-                    if (!Files.exists(filePath)) {
-                        // Se não existe cache anterior, não criar arquivo vazio
-                        // O cache será criado quando houver o primeiro pedido
-                        log.info("ℹ️ Cache vazio não será criado (não existe cache anterior). Cache será criado quando houver pedidos.");
-                        return;
-                    }
-                    // Se já existe cache, permitir salvar array vazio (último pedido foi removido)
-                    log.info("✅ Atualizando cache para array vazio (último pedido removido)");
+            log.info("Tentando salvar cache de pedidos: {} pedidos encontrados", pedidos.size());
+
+            // Se a lista estiver vazia, permitir salvar apenas se já existir cache
+            // Isso permite zerar o cache quando o último pedido é removido (ação de gestão)
+            if (pedidos.isEmpty()) {
+                if (!existeCachePedidos()) {
+                    // Se não existe cache anterior, não criar arquivo vazio
+                    // O cache será criado quando houver o primeiro pedido
+                    log.info("ℹ️ Cache vazio não será criado (não existe cache anterior). Cache será criado quando houver pedidos.");
+                    return true;
                 }
-            } else {
-                log.info("Salvando cache de pedidos: tipo {}", pedidos != null ? pedidos.getClass().getSimpleName() : "null");
+                // Se já existe cache, permitir salvar lista vazia (último pedido foi removido)
+                log.info("✅ Atualizando cache para lista vazia (último pedido removido)");
             }
-            
-            // Salvar cache (pode ser array vazio se já existir cache anterior)
-            objectMapper.writerWithDefaultPrettyPrinter().writeValue(filePath.toFile(), pedidos);
-            log.info("✅ Cache de pedidos salvo com sucesso em: {}", filePath.toAbsolutePath());
 
-            // Notificar listeners sobre a mudança
-            notifyPedidoChangeListeners(pedidos);
-        } catch (IOException e) {
+            // Grava em arquivo temporário e renomeia, para nunca deixar o snapshot pela metade
+            long inicio = System.nanoTime();
+            byte[] conteudo = PedidoSnapshotBinario.codificar(pedidos);
+            gravarAtomicamente(filePath, conteudo);
+            registrarIo(METRICA_ESCRITA, ARQUIVO_SNAPSHOT, System.nanoTime() - inicio, conteudo.length);
+            log.info("✅ Cache de pedidos salvo com sucesso em: {} ({} bytes)", filePath.toAbsolutePath(), conteudo.length);
+
+            // O snapshot binário já cobre o JSON antigo; mantê-lo faria pedidos antigos voltarem num fallback
+            if (Files.deleteIfExists(cacheDirectory.resolve(PEDIDOS_CACHE_LEGADO_FILE))) {
+                log.info("🗑️ Snapshot JSON antigo ({}) substituído pelo binário", PEDIDOS_CACHE_LEGADO_FILE);
+            }
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
             log.error("❌ Erro ao salvar cache de pedidos: {}", e.getMessage(), e);
             // Não lançar exceção para não interromper a operação principal
             // O erro já foi logado, a operação de pedido deve continuar normalmente
+            return false;
         }
     }
 
-    public Object carregarCachePedidos() {
-        try {
-            Path filePath = cacheDirectory.resolve(PEDIDOS_CACHE_FILE);
-            if (Files.exists(filePath)) {
-                // Ler como Object.class retorna LinkedHashMap/ArrayList quando deserializa JSON
-                // Isso é esperado e será convertido no PedidoService
-                Object pedidos = objectMapper.readValue(filePath.toFile(), Object.class);
-                log.info("Cache de pedidos carregado de: {} (tipo: {})", 
-                    filePath.toAbsolutePath(), 
-                    pedidos != null ? pedidos.getClass().getSimpleName() : "null");
+    /**
+     * Carrega o snapshot de pedidos. Um snapshot binário corrompido (checksum, versão ou
+     * tamanho inválidos) é renomeado para .corrompido e ignorado; o journal ainda é reaplicado.
+     * Sem snapshot binário, lê o JSON das versões anteriores, se existir.
+     */
+    public List<PedidoResponseDTO> carregarCachePedidos() {
+        Path filePath = cacheDirectory.resolve(PEDIDOS_CACHE_FILE);
+        if (Files.exists(filePath)) {
+            try {
+                long inicio = System.nanoTime();
+                byte[] conteudo = Files.readAllBytes(filePath);
+                List<PedidoResponseDTO> pedidos = PedidoSnapshotBinario.decodificar(conteudo);
+                registrarIo(METRICA_LEITURA, ARQUIVO_SNAPSHOT, System.nanoTime() - inicio, conteudo.length);
+                log.info("Cache de pedidos carregado de: {} ({} pedidos)", filePath.toAbsolutePath(), pedidos.size());
                 return pedidos;
-            } else {
-                log.info("Cache de pedidos não existe ainda em: {}", filePath.toAbsolutePath());
+            } catch (IOException e) {
+                log.error("❌ Snapshot de pedidos inválido em {}: {}", filePath.toAbsolutePath(), e.getMessage());
+                separarArquivoCorrompido(filePath);
             }
+        }
+        return carregarCacheLegado();
+    }
+
+    private List<PedidoResponseDTO> carregarCacheLegado() {
+        Path filePath = cacheDirectory.resolve(PEDIDOS_CACHE_LEGADO_FILE);
+        if (!Files.exists(filePath)) {
+            log.info("Cache de pedidos não existe ainda em: {}", cacheDirectory.resolve(PEDIDOS_CACHE_FILE).toAbsolutePath());
+            return new ArrayList<>();
+        }
+        try {
+            long inicio = System.nanoTime();
+            byte[] conteudo = Files.readAllBytes(filePath);
+            List<PedidoResponseDTO> pedidos = pedidoJsonCodec.lerLista(conteudo);
+            registrarIo(METRICA_LEITURA, ARQUIVO_SNAPSHOT, System.nanoTime() - inicio, conteudo.length);
+            log.info("Cache de pedidos (JSON antigo) carregado de: {} ({} pedidos); será convertido para binário na próxima compactação",
+                filePath.toAbsolutePath(), pedidos.size());
+            return pedidos;
         } catch (IOException e) {
             log.warn("Erro ao carregar cache de pedidos: {}", e.getMessage());
+            return new ArrayList<>();
         }
-        return null;
+    }
+
+    private void separarArquivoCorrompido(Path filePath) {
+        try {
+            Files.move(filePath, filePath.resolveSibling(filePath.getFileName() + CORROMPIDO_SUFFIX),
+                StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("Erro ao separar snapshot corrompido: {}", e.getMessage());
+        }
+    }
+
+    public boolean existeCachePedidos() {
+        return Files.exists(cacheDirectory.resolve(PEDIDOS_CACHE_FILE))
+            || Files.exists(cacheDirectory.resolve(PEDIDOS_CACHE_LEGADO_FILE));
+    }
+
+    /**
+     * Acrescenta um evento ao journal. Custa uma única escrita sequencial pequena,
+     * independente da quantidade de pedidos na fila; escritas concorrentes são
+     * agrupadas em um único lote pelo GroupCommitJournal.
+     * O retorno completa quando o evento está gravado conforme a política de fsync.
+     */
+    public CompletableFuture<Void> registrarEventoPedido(PedidoEventoSerializado evento) {
+        // Reaproveita o JSON já serializado para o SSE; só acrescenta a quebra de linha
+        byte[] json = evento.json();
+        byte[] linha = new byte[json.length + QUEBRA_LINHA.length];
+        System.arraycopy(json, 0, linha, 0, json.length);
+        System.arraycopy(QUEBRA_LINHA, 0, linha, json.length, QUEBRA_LINHA.length);
+        long inicio = System.nanoTime();
+        CompletableFuture<Void> gravacao;
+        synchronized (journalLock) {
+            eventosNoJournal++;
+            gravacao = journal.acrescentar(linha);
+        }
+        // Latência vista por quem grava: janela do group commit + escrita (+ fsync, conforme a política)
+        gravacao.thenRun(() -> registrarIo(METRICA_ESCRITA, ARQUIVO_JOURNAL, System.nanoTime() - inicio, linha.length));
+        return gravacao;
+    }
+
+    /**
+     * Indica se há journal rotacionado de uma compactação que não terminou.
+     */
+    public boolean existeJournalPendente() {
+        return Files.exists(cacheDirectory.resolve(PEDIDOS_JOURNAL_COMPACTANDO_FILE))
+            || Files.exists(cacheDirectory.resolve(PEDIDOS_JOURNAL_FILE));
+    }
+
+    public int getEventosNoJournal() {
+        synchronized (journalLock) {
+            return eventosNoJournal;
+        }
+    }
+
+    /**
+     * Fecha o journal atual e o renomeia para compactação. Novos eventos passam a ir
+     * para um journal vazio. Deve ser chamado no mesmo ponto em que o snapshot do
+     * store é tirado, para que o snapshot cubra exatamente os eventos rotacionados.
+     *
+     * @return se existe journal rotacionado depois desta chamada (criado ou estendido por ela)
+     */
+    public boolean rotacionarJournalPedidos() {
+        synchronized (journalLock) {
+            boolean[] rotacionado = {false};
+            // A rotação roda na thread escritora, depois de gravar todos os eventos já enfileirados
+            journal.executarNoEscritor(() -> {
+                journal.fecharArquivo();
+                Path atual = cacheDirectory.resolve(PEDIDOS_JOURNAL_FILE);
+                Path compactando = cacheDirectory.resolve(PEDIDOS_JOURNAL_COMPACTANDO_FILE);
+                try {
+                    if (Files.exists(atual)) {
+                        if (Files.exists(compactando)) {
+                            // Compactação anterior não terminou: preservar os eventos antigos
+                            Files.write(compactando, Files.readAllBytes(atual), StandardOpenOption.APPEND);
+                            Files.delete(atual);
+                        } else {
+                            Files.move(atual, compactando, StandardCopyOption.ATOMIC_MOVE);
+                        }
+                    }
+                } catch (IOException e) {
+                    log.error("❌ Erro ao rotacionar journal de pedidos: {}", e.getMessage(), e);
+                }
+                rotacionado[0] = Files.exists(compactando);
+            });
+            eventosNoJournal = 0;
+            return rotacionado[0];
+        }
+    }
+
+    /**
+     * Grava o snapshot compactado e descarta o journal rotacionado que ele cobre.
+     * Só apaga o journal rotacionado se a rotação correspondente o produziu; quem chama
+     * garante que nenhuma outra rotação ocorre entre as duas chamadas.
+     */
+    public void concluirCompactacaoPedidos(List<PedidoResponseDTO> snapshot, boolean journalRotacionado) {
+        if (!salvarCachePedidos(snapshot)) {
+            // Mantém o journal rotacionado: ele será reaplicado no próximo carregamento
+            return;
+        }
+        if (!journalRotacionado) {
+            log.info("🗜️ Snapshot de pedidos gravado com {} pedidos", snapshot.size());
+            return;
+        }
+        try {
+            Files.deleteIfExists(cacheDirectory.resolve(PEDIDOS_JOURNAL_COMPACTANDO_FILE));
+            log.info("🗜️ Journal de pedidos compactado em snapshot com {} pedidos", snapshot.size());
+        } catch (IOException e) {
+            log.warn("Erro ao remover journal compactado: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Lê os eventos pendentes (journal rotacionado + journal atual) na ordem em que foram gravados.
+     * Uma linha final truncada (queda durante a escrita) é ignorada.
+     */
+    public List<PedidoEventoDTO> carregarJournalPedidos() {
+        List<PedidoEventoDTO> eventos = new ArrayList<>();
+        lerJournal(cacheDirectory.resolve(PEDIDOS_JOURNAL_COMPACTANDO_FILE), eventos);
+        lerJournal(cacheDirectory.resolve(PEDIDOS_JOURNAL_FILE), eventos);
+        if (!eventos.isEmpty()) {
+            log.info("📝 {} eventos de pedidos lidos do journal", eventos.size());
+        }
+        return eventos;
+    }
+
+    private void lerJournal(Path path, List<PedidoEventoDTO> eventos) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        try {
+            // Lê o arquivo inteiro e decodifica cada linha direto dos bytes, sem String intermediária
+            byte[] conteudo = Files.readAllBytes(path);
+            int inicioLinha = 0;
+            while (inicioLinha < conteudo.length) {
+                int fimLinha = inicioLinha;
+                while (fimLinha < conteudo.length && conteudo[fimLinha] != '\n') {
+                    fimLinha++;
+                }
+                if (!linhaEmBranco(conteudo, inicioLinha, fimLinha)) {
+                    try {
+                        eventos.add(pedidoJsonCodec.lerEvento(conteudo, inicioLinha, fimLinha - inicioLinha));
+                    } catch (IOException e) {
+                        log.warn("⚠️ Linha inválida ignorada no journal {}: {}", path.getFileName(), e.getMessage());
+                    }
+                }
+                inicioLinha = fimLinha + 1;
+            }
+            registrarIo(METRICA_LEITURA, ARQUIVO_JOURNAL, System.nanoTime() - inicio, conteudo.length);
+        } catch (IOException e) {
+            log.error("❌ Erro ao ler journal de pedidos {}: {}", path.toAbsolutePath(), e.getMessage(), e);
+        }
+    }
+
+    private static boolean linhaEmBranco(byte[] conteudo, int inicio, int fim) {
+        for (int i = inicio; i < fim; i++) {
+            if (!Character.isWhitespace(conteudo[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Grava em arquivo temporário, faz fsync (exceto na política SISTEMA) e renomeia,
+     * para que o arquivo final nunca fique pela metade.
+     */
+    private void gravarAtomicamente(Path destino, byte[] conteudo) throws IOException {
+        Path tempPath = destino.resolveSibling(destino.getFileName() + TEMP_SUFFIX);
+        try (FileChannel canal = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(conteudo);
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            if (journal.getPolitica() != GroupCommitJournal.PoliticaFsync.SISTEMA) {
+                canal.force(true);
+            }
+        }
+        Files.move(tempPath, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void registrarIo(String metrica, String arquivo, long duracaoNanos, long bytes) {
+        Timer.builder(metrica)
+            .tag("arquivo", arquivo)
+            .register(meterRegistry)
+            .record(duracaoNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder(metrica + ".bytes")
+            .baseUnit("bytes")
+            .tag("arquivo", arquivo)
+            .register(meterRegistry)
+            .record(bytes);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        journal.fechar();
     }
 
     public void salvarConfigAnimacao(Map<String, Object> config) {
@@ -179,34 +441,4 @@ public class CacheService {
     public String getCacheDirectoryPath() {
         return cacheDirectory.toAbsolutePath().toString();
     }
-
-    // Métodos para gerenciar listeners de mudança nos pedidos
-    public void addPedidoChangeListener(PedidoChangeListener listener) {
-        pedidoChangeListeners.add(listener);
-        log.info("📡 Listener de mudança de pedidos adicionado. Total: {}", pedidoChangeListeners.size());
-    }
-
-    public void removePedidoChangeListener(PedidoChangeListener listener) {
-        pedidoChangeListeners.remove(listener);
-        log.info("📡 Listener de mudança de pedidos removido. Total: {}", pedidoChangeListeners.size());
-    }
-
-    private void notifyPedidoChangeListeners(Object pedidos) {
-        int totalListeners = pedidoChangeListeners.size();
-        log.info("📢 Notificando {} listener(s) sobre mudança nos pedidos", totalListeners);
-        
-        if (totalListeners == 0) {
-            log.warn("⚠️ Nenhum listener registrado! As atualizações SSE não serão enviadas.");
-        }
-        
-        for (PedidoChangeListener listener : pedidoChangeListeners) {
-            try {
-                listener.onPedidosChanged(pedidos);
-                log.debug("✅ Listener notificado com sucesso");
-            } catch (Exception e) {
-                log.warn("Erro ao notificar listener de mudança de pedidos: {}", e.getMessage(), e);
-            }
-        }
-    }
 }
-
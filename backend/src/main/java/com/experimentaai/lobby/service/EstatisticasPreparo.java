@@ -0,0 +1,174 @@
+package com.experimentaai.lobby.service;
+
+import com.experimentaai.lobby.dto.EstatisticasPreparoDTO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Estatísticas incrementais de preparo: um anel com uma posição por minuto, cada uma com
+ * contadores de criados/prontos e um histograma logarítmico dos tempos de preparo.
+ *
+ * Registrar um evento custa O(1) (a posição do minuto é reaproveitada quando o anel dá a volta);
+ * uma consulta soma no máximo janelaMinutos histogramas de tamanho fixo, sem percorrer pedidos.
+ * Eventos são registrados pelo horário em que aconteceram, então dá para reconstituir a janela
+ * a partir dos pedidos carregados na inicialização; eventos mais antigos que a janela são ignorados.
+ *
+ * Thread-safe: o sequenciador registra e as requisições consultam.
+ */
+public class EstatisticasPreparo {
+
+    // Faixas de ~10%: a faixa i cobre [FATOR^i, FATOR^(i+1)) ms; 200 faixas passam de 24 h
+    private static final double FATOR = 1.1;
+    private static final double LOG_FATOR = Math.log(FATOR);
+    private static final int FAIXAS = 200;
+    private static final long MINUTO_MS = 60_000L;
+
+    private static final class Minuto {
+        long minuto = Long.MIN_VALUE;
+        long criados;
+        long prontos;
+        long somaPreparoMs;
+        long maximoPreparoMs;
+        final long[] faixas = new long[FAIXAS];
+
+        void reiniciar(long novoMinuto) {
+            minuto = novoMinuto;
+            criados = 0;
+            prontos = 0;
+            somaPreparoMs = 0;
+            maximoPreparoMs = 0;
+            Arrays.fill(faixas, 0);
+        }
+    }
+
+    private final Minuto[] anel;
+    private final int janelaMinutos;
+    private final int janelaVazaoMinutos;
+
+    public EstatisticasPreparo(int janelaMinutos, int janelaVazaoMinutos) {
+        this.janelaMinutos = Math.max(1, janelaMinutos);
+        this.janelaVazaoMinutos = Math.max(1, Math.min(janelaVazaoMinutos, this.janelaMinutos));
+        this.anel = new Minuto[this.janelaMinutos];
+        for (int i = 0; i < anel.length; i++) {
+            anel[i] = new Minuto();
+        }
+    }
+
+    public synchronized void registrarCriado(long criadoEmMs) {
+        Minuto posicao = posicaoPara(criadoEmMs);
+        if (posicao != null) {
+            posicao.criados++;
+        }
+    }
+
+    public synchronized void registrarPronto(long criadoEmMs, long prontoEmMs) {
+        Minuto posicao = posicaoPara(prontoEmMs);
+        if (posicao == null) {
+            return;
+        }
+        long preparoMs = Math.max(0, prontoEmMs - criadoEmMs);
+        posicao.prontos++;
+        posicao.somaPreparoMs += preparoMs;
+        posicao.maximoPreparoMs = Math.max(posicao.maximoPreparoMs, preparoMs);
+        posicao.faixas[faixa(preparoMs)]++;
+    }
+
+    public synchronized void limpar() {
+        for (Minuto posicao : anel) {
+            posicao.reiniciar(Long.MIN_VALUE);
+        }
+    }
+
+    public synchronized EstatisticasPreparoDTO calcular(long agoraMs) {
+        long minutoAtual = Math.floorDiv(agoraMs, MINUTO_MS);
+        long[] faixas = new long[FAIXAS];
+        long prontos = 0;
+        long somaPreparoMs = 0;
+        long maximoPreparoMs = 0;
+        long criadosVazao = 0;
+        long prontosVazao = 0;
+        List<Long> serie = new ArrayList<>(janelaMinutos);
+        for (long minuto = minutoAtual - janelaMinutos + 1; minuto <= minutoAtual; minuto++) {
+            Minuto posicao = anel[indice(minuto)];
+            if (posicao.minuto != minuto) {
+                serie.add(0L);
+                continue;
+            }
+            serie.add(posicao.prontos);
+            prontos += posicao.prontos;
+            somaPreparoMs += posicao.somaPreparoMs;
+            maximoPreparoMs = Math.max(maximoPreparoMs, posicao.maximoPreparoMs);
+            for (int i = 0; i < FAIXAS; i++) {
+                faixas[i] += posicao.faixas[i];
+            }
+            if (minuto > minutoAtual - janelaVazaoMinutos) {
+                criadosVazao += posicao.criados;
+                prontosVazao += posicao.prontos;
+            }
+        }
+        // O minuto atual conta só pela fração já decorrida
+        double minutosVazao = janelaVazaoMinutos - 1 + (double) Math.floorMod(agoraMs, MINUTO_MS) / MINUTO_MS;
+        minutosVazao = Math.max(minutosVazao, 1.0 / 60);
+
+        return EstatisticasPreparoDTO.builder()
+                .janelaMinutos(janelaMinutos)
+                .prontos(prontos)
+                .tempoPreparoMedioMs(prontos > 0 ? somaPreparoMs / prontos : null)
+                .p50Ms(percentil(faixas, prontos, 0.50, maximoPreparoMs))
+                .p90Ms(percentil(faixas, prontos, 0.90, maximoPreparoMs))
+                .p95Ms(percentil(faixas, prontos, 0.95, maximoPreparoMs))
+                .p99Ms(percentil(faixas, prontos, 0.99, maximoPreparoMs))
+                .tempoPreparoMaximoMs(prontos > 0 ? maximoPreparoMs : null)
+                .janelaVazaoMinutos(janelaVazaoMinutos)
+                .criadosPorMinuto(criadosVazao / minutosVazao)
+                .prontosPorMinuto(prontosVazao / minutosVazao)
+                .prontosPorMinutoSerie(serie)
+                .calculadoEm(agoraMs)
+                .build();
+    }
+
+    /**
+     * Posição do minuto do evento, reiniciando-a se ainda guarda um minuto mais antigo;
+     * nula se o evento é mais antigo que o minuto que já ocupa a posição.
+     */
+    private Minuto posicaoPara(long momentoMs) {
+        long minuto = Math.floorDiv(momentoMs, MINUTO_MS);
+        Minuto posicao = anel[indice(minuto)];
+        if (posicao.minuto > minuto) {
+            return null;
+        }
+        if (posicao.minuto < minuto) {
+            posicao.reiniciar(minuto);
+        }
+        return posicao;
+    }
+
+    private int indice(long minuto) {
+        return (int) Math.floorMod(minuto, (long) anel.length);
+    }
+
+    private static int faixa(long preparoMs) {
+        if (preparoMs < 1) {
+            return 0;
+        }
+        return Math.min(FAIXAS - 1, (int) (Math.log(preparoMs) / LOG_FATOR));
+    }
+
+    // Centro geométrico da faixa que contém o percentil, limitado ao máximo observado
+    private static Long percentil(long[] faixas, long total, double quantil, long maximo) {
+        if (total == 0) {
+            return null;
+        }
+        long alvo = Math.max(1, (long) Math.ceil(quantil * total));
+        long acumulado = 0;
+        for (int i = 0; i < FAIXAS; i++) {
+            acumulado += faixas[i];
+            if (acumulado >= alvo) {
+                return Math.min(maximo, Math.round(Math.pow(FATOR, i + 0.5)));
+            }
+        }
+        return maximo;
+    }
+}
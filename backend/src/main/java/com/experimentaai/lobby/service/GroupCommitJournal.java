@@ -0,0 +1,261 @@
+package com.experimentaai.lobby.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escritor de journal com group commit: uma única thread escreve no arquivo,
+ * juntando as linhas que chegam dentro de uma pequena janela em uma só escrita
+ * (e um só fsync, conforme a política).
+ *
+ * Quem acrescenta recebe um CompletableFuture que completa quando o lote foi
+ * gravado: após o fsync na política SEMPRE, ou após a escrita no sistema
+ * operacional nas políticas INTERVALO e SISTEMA.
+ */
+@Slf4j
+public class GroupCommitJournal {
+
+    /**
+     * Política de fsync do journal.
+     * SEMPRE: fsync a cada lote, antes de confirmar as escritas.
+     * INTERVALO: fsync no máximo a cada N ms (perde no máximo N ms em queda de energia).
+     * SISTEMA: nunca chama fsync; o sistema operacional decide quando gravar no disco.
+     */
+    public enum PoliticaFsync {
+        SEMPRE,
+        INTERVALO,
+        SISTEMA
+    }
+
+    private static final int MAX_LOTE = 512;
+
+    private record Operacao(byte[] linha, Runnable acao, CompletableFuture<Void> concluida) {
+    }
+
+    private final Path arquivo;
+    private final PoliticaFsync politica;
+    private final long intervaloFsyncMs;
+    private final long janelaMs;
+    private final BlockingQueue<Operacao> fila = new LinkedBlockingQueue<>();
+    private final Thread escritor;
+
+    private volatile boolean ativo = true;
+    private FileChannel canal;
+    private boolean fsyncPendente;
+    private long ultimoFsync = System.currentTimeMillis();
+
+    public GroupCommitJournal(Path arquivo, PoliticaFsync politica, long intervaloFsyncMs, long janelaMs) {
+        this.arquivo = arquivo;
+        this.politica = politica;
+        this.intervaloFsyncMs = Math.max(1, intervaloFsyncMs);
+        this.janelaMs = Math.max(0, janelaMs);
+        this.escritor = new Thread(this::executar, "journal-pedidos");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+        log.info("📝 Journal com group commit iniciado (fsync: {}, intervalo: {} ms, janela: {} ms)",
+                politica, this.intervaloFsyncMs, this.janelaMs);
+    }
+
+    public PoliticaFsync getPolitica() {
+        return politica;
+    }
+
+    /**
+     * Enfileira uma linha para o próximo lote. A ordem de chamada é a ordem no arquivo.
+     */
+    public CompletableFuture<Void> acrescentar(byte[] linha) {
+        CompletableFuture<Void> concluida = new CompletableFuture<>();
+        if (!ativo) {
+            concluida.completeExceptionally(new IOException("Journal de pedidos já foi encerrado"));
+            return concluida;
+        }
+        fila.add(new Operacao(linha, null, concluida));
+        return concluida;
+    }
+
+    /**
+     * Executa uma ação na thread escritora depois de gravar tudo o que já foi enfileirado
+     * (ex.: rotação do arquivo) e aguarda a conclusão.
+     */
+    public void executarNoEscritor(Runnable acao) {
+        CompletableFuture<Void> concluida = new CompletableFuture<>();
+        fila.add(new Operacao(null, acao, concluida));
+        concluida.join();
+    }
+
+    /**
+     * Grava o que estiver pendente, faz o fsync final e encerra a thread escritora.
+     */
+    public void fechar() {
+        if (!ativo) {
+            return;
+        }
+        executarNoEscritor(() -> {
+            ativo = false;
+            forcar();
+            fecharCanal();
+        });
+        try {
+            escritor.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Fecha o arquivo atual; a próxima escrita reabre (ou recria) o arquivo.
+     * Deve ser chamado dentro de executarNoEscritor.
+     */
+    public void fecharArquivo() {
+        forcar();
+        fecharCanal();
+    }
+
+    private void executar() {
+        List<Operacao> lote = new ArrayList<>();
+        while (ativo || !fila.isEmpty()) {
+            try {
+                Operacao primeira = fila.poll(tempoAteProximoFsync(), TimeUnit.MILLISECONDS);
+                if (primeira == null) {
+                    if (fsyncPendente) {
+                        forcar();
+                    }
+                    continue;
+                }
+                lote.add(primeira);
+                aguardarJanela(lote);
+                fila.drainTo(lote, MAX_LOTE - lote.size());
+                processarLote(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("❌ Erro inesperado no escritor do journal: {}", e.getMessage(), e);
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    private long tempoAteProximoFsync() {
+        if (politica != PoliticaFsync.INTERVALO || !fsyncPendente) {
+            return intervaloFsyncMs;
+        }
+        return Math.max(0, ultimoFsync + intervaloFsyncMs - System.currentTimeMillis());
+    }
+
+    /**
+     * Aguarda a janela de group commit para juntar escritas concorrentes no mesmo lote.
+     */
+    private void aguardarJanela(List<Operacao> lote) throws InterruptedException {
+        if (janelaMs == 0 || lote.get(0).linha() == null) {
+            return;
+        }
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(janelaMs);
+        long restante;
+        while (lote.size() < MAX_LOTE && (restante = limite - System.nanoTime()) > 0) {
+            Operacao proxima = fila.poll(restante, TimeUnit.NANOSECONDS);
+            if (proxima == null) {
+                break;
+            }
+            lote.add(proxima);
+            if (proxima.linha() == null) {
+                break;
+            }
+        }
+    }
+
+    private void processarLote(List<Operacao> lote) {
+        List<Operacao> linhas = new ArrayList<>(lote.size());
+        for (Operacao operacao : lote) {
+            if (operacao.linha() != null) {
+                linhas.add(operacao);
+                continue;
+            }
+            // Ações (ex.: rotação) só rodam depois de gravar as linhas anteriores a elas
+            gravarLinhas(linhas);
+            linhas.clear();
+            try {
+                operacao.acao().run();
+                operacao.concluida().complete(null);
+            } catch (RuntimeException e) {
+                operacao.concluida().completeExceptionally(e);
+            }
+        }
+        gravarLinhas(linhas);
+    }
+
+    private void gravarLinhas(List<Operacao> linhas) {
+        if (linhas.isEmpty()) {
+            return;
+        }
+        try {
+            ByteBuffer[] buffers = new ByteBuffer[linhas.size()];
+            for (int i = 0; i < linhas.size(); i++) {
+                buffers[i] = ByteBuffer.wrap(linhas.get(i).linha());
+            }
+            FileChannel destino = abrirCanal();
+            while (buffers[buffers.length - 1].hasRemaining()) {
+                destino.write(buffers);
+            }
+            fsyncPendente = politica != PoliticaFsync.SISTEMA;
+            if (politica == PoliticaFsync.SEMPRE
+                    || (politica == PoliticaFsync.INTERVALO && tempoAteProximoFsync() == 0)) {
+                forcarOuFalhar();
+            }
+            linhas.forEach(operacao -> operacao.concluida().complete(null));
+            log.debug("📝 Lote de {} eventos gravado no journal", linhas.size());
+        } catch (IOException e) {
+            log.error("❌ Erro ao gravar lote de {} eventos no journal: {}", linhas.size(), e.getMessage(), e);
+            fecharCanal();
+            linhas.forEach(operacao -> operacao.concluida().completeExceptionally(e));
+        }
+    }
+
+    private FileChannel abrirCanal() throws IOException {
+        if (canal == null) {
+            canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        return canal;
+    }
+
+    private void forcarOuFalhar() throws IOException {
+        if (canal != null) {
+            canal.force(false);
+        }
+        fsyncPendente = false;
+        ultimoFsync = System.currentTimeMillis();
+    }
+
+    private void forcar() {
+        try {
+            forcarOuFalhar();
+        } catch (IOException e) {
+            log.warn("Erro no fsync do journal de pedidos: {}", e.getMessage());
+        }
+    }
+
+    private void fecharCanal() {
+        if (canal == null) {
+            return;
+        }
+        try {
+            canal.close();
+        } catch (IOException e) {
+            log.warn("Erro ao fechar journal de pedidos: {}", e.getMessage());
+        }
+        canal = null;
+    }
+}
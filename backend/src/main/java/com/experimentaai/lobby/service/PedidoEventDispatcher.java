@@ -0,0 +1,270 @@
+package com.experimentaai.lobby.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Distribui eventos de pedidos para os assinantes (conexões SSE) de forma assíncrona.
+ *
+ * Publicar apenas enfileira o evento na fila limitada de cada assinante, então a
+ * thread que fez a mutação não espera nenhum envio. Um pool pequeno de threads
+ * drena as filas, mantendo a ordem por assinante. Quando a fila de um assinante
+ * lento enche, a política configurada decide: desconectar (o cliente reconecta e
+ * recebe um snapshot novo) ou descartar o evento mais antigo (o cliente percebe o
+ * buraco na versão e ressincroniza).
+ */
+@Slf4j
+@Service
+public class PedidoEventDispatcher {
+
+    // Interface funcional para listeners de mudança nos pedidos (recebem eventos delta ou snapshot já serializados)
+    @FunctionalInterface
+    public interface PedidoChangeListener {
+        void onPedidoEvento(PedidoEventoSerializado evento);
+    }
+
+    public enum PoliticaConsumidorLento {
+        DESCONECTAR,
+        DESCARTAR_MAIS_ANTIGO
+    }
+
+    private record Entrega(PedidoEventoSerializado evento, long enfileiradoEmNanos) {
+    }
+
+    private final class Assinante {
+        private final PedidoChangeListener listener;
+        private final Runnable aoDesconectar;
+        private final BlockingQueue<Entrega> fila;
+        private final AtomicBoolean agendado = new AtomicBoolean();
+        private volatile boolean ativo = true;
+
+        private Assinante(PedidoChangeListener listener, Runnable aoDesconectar) {
+            this.listener = listener;
+            this.aoDesconectar = aoDesconectar;
+            this.fila = new ArrayBlockingQueue<>(capacidadeFila);
+        }
+
+        private void enfileirar(Entrega entrega) {
+            if (!ativo) {
+                return;
+            }
+            while (!fila.offer(entrega)) {
+                if (politica == PoliticaConsumidorLento.DESCONECTAR) {
+                    log.warn("🐢 Assinante SSE lento ({} eventos pendentes), desconectando", fila.size());
+                    desconectar();
+                    return;
+                }
+                if (fila.poll() != null) {
+                    eventosDescartados.incrementAndGet();
+                }
+            }
+            profundidadeMaxima.accumulateAndGet(fila.size(), Math::max);
+            agendar();
+        }
+
+        private void agendar() {
+            if (agendado.compareAndSet(false, true)) {
+                executor.execute(this::drenar);
+            }
+        }
+
+        private void drenar() {
+            try {
+                Entrega entrega;
+                while (ativo && (entrega = fila.poll()) != null) {
+                    long atrasoNanos = System.nanoTime() - entrega.enfileiradoEmNanos();
+                    atrasoDespacho.record(atrasoNanos, TimeUnit.NANOSECONDS);
+                    long atrasoMs = TimeUnit.NANOSECONDS.toMillis(atrasoNanos);
+                    ultimoAtrasoMs.set(atrasoMs);
+                    atrasoMaximoMs.accumulateAndGet(atrasoMs, Math::max);
+                    try {
+                        listener.onPedidoEvento(entrega.evento());
+                        eventosEntregues.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        log.warn("Erro ao entregar evento de pedidos ao assinante: {}", e.getMessage());
+                        desconectar();
+                    }
+                }
+            } finally {
+                agendado.set(false);
+                // Evento pode ter chegado entre o último poll e a liberação da flag
+                if (ativo && !fila.isEmpty()) {
+                    agendar();
+                }
+            }
+        }
+
+        private void desconectar() {
+            if (!ativo) {
+                return;
+            }
+            ativo = false;
+            fila.clear();
+            assinantes.remove(listener);
+            assinantesDesconectados.incrementAndGet();
+            if (aoDesconectar != null) {
+                try {
+                    aoDesconectar.run();
+                } catch (RuntimeException e) {
+                    log.debug("Erro ao encerrar assinante desconectado: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private final Map<PedidoChangeListener, Assinante> assinantes = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    private final int capacidadeFila;
+    private final PoliticaConsumidorLento politica;
+
+    private final AtomicLong eventosPublicados = new AtomicLong();
+    private final AtomicLong eventosEntregues = new AtomicLong();
+    private final AtomicLong eventosDescartados = new AtomicLong();
+    private final AtomicLong assinantesDesconectados = new AtomicLong();
+    private final AtomicInteger profundidadeMaxima = new AtomicInteger();
+    private final AtomicLong ultimoAtrasoMs = new AtomicLong();
+    private final AtomicLong atrasoMaximoMs = new AtomicLong();
+    private final Timer atrasoDespacho;
+
+    public PedidoEventDispatcher(@Value("${lobby.sse.dispatcher.threads:2}") int threads,
+                                 @Value("${lobby.sse.dispatcher.capacidade-fila:256}") int capacidadeFila,
+                                 @Value("${lobby.sse.dispatcher.politica:DESCONECTAR}") PoliticaConsumidorLento politica,
+                                 MeterRegistry meterRegistry) {
+        this.capacidadeFila = Math.max(1, capacidadeFila);
+        this.politica = politica;
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "sse-dispatcher-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.atrasoDespacho = registrarMetricas(meterRegistry);
+        log.info("📡 Dispatcher SSE iniciado (threads: {}, fila por assinante: {}, política: {})",
+                threads, this.capacidadeFila, politica);
+    }
+
+    /**
+     * Registra um assinante. Os eventos iniciais (snapshot ou deltas perdidos) são os
+     * primeiros da fila dele.
+     * aoDesconectar é chamado se o assinante for desconectado por lentidão ou erro.
+     */
+    public void inscrever(PedidoChangeListener listener, Runnable aoDesconectar,
+                          List<PedidoEventoSerializado> eventosIniciais) {
+        Assinante assinante = new Assinante(listener, aoDesconectar);
+        assinantes.put(listener, assinante);
+        long agora = System.nanoTime();
+        for (PedidoEventoSerializado evento : eventosIniciais) {
+            assinante.enfileirar(new Entrega(evento, agora));
+        }
+        log.info("📡 Listener de mudança de pedidos adicionado. Total: {}", assinantes.size());
+    }
+
+    public void cancelar(PedidoChangeListener listener) {
+        Assinante assinante = assinantes.remove(listener);
+        if (assinante != null) {
+            assinante.ativo = false;
+            assinante.fila.clear();
+            log.info("📡 Listener de mudança de pedidos removido. Total: {}", assinantes.size());
+        }
+    }
+
+    /**
+     * Enfileira o evento para todos os assinantes, sem bloquear.
+     * Todos recebem a mesma instância (e o mesmo JSON serializado).
+     */
+    public void publicar(PedidoEventoSerializado evento) {
+        eventosPublicados.incrementAndGet();
+        long agora = System.nanoTime();
+        for (Assinante assinante : assinantes.values()) {
+            assinante.enfileirar(new Entrega(evento, agora));
+        }
+        log.debug("📢 Evento {} (versão {}) enfileirado para {} assinante(s)",
+                evento.evento().getTipo(), evento.evento().getVersao(), assinantes.size());
+    }
+
+    public int getCapacidadeFila() {
+        return capacidadeFila;
+    }
+
+    public int getTotalAssinantes() {
+        return assinantes.size();
+    }
+
+    public int getProfundidadeTotalFilas() {
+        int total = 0;
+        for (Assinante assinante : assinantes.values()) {
+            total += assinante.fila.size();
+        }
+        return total;
+    }
+
+    public Map<String, Object> getMetricas() {
+        List<Integer> profundidades = new ArrayList<>();
+        for (Assinante assinante : assinantes.values()) {
+            profundidades.add(assinante.fila.size());
+        }
+        Map<String, Object> metricas = new HashMap<>();
+        metricas.put("assinantes", profundidades.size());
+        metricas.put("profundidadeFilas", profundidades);
+        metricas.put("profundidadeMaxima", profundidadeMaxima.get());
+        metricas.put("capacidadeFila", capacidadeFila);
+        metricas.put("politica", politica);
+        metricas.put("eventosPublicados", eventosPublicados.get());
+        metricas.put("eventosEntregues", eventosEntregues.get());
+        metricas.put("eventosDescartados", eventosDescartados.get());
+        metricas.put("assinantesDesconectados", assinantesDesconectados.get());
+        metricas.put("ultimoAtrasoMs", ultimoAtrasoMs.get());
+        metricas.put("atrasoMaximoMs", atrasoMaximoMs.get());
+        return metricas;
+    }
+
+    /**
+     * Métricas do dispatcher no Actuator; o timer mede o tempo entre publicar o evento
+     * e entregá-lo ao assinante (atraso de despacho).
+     */
+    private Timer registrarMetricas(MeterRegistry registry) {
+        Gauge.builder("lobby.sse.assinantes", assinantes, Map::size)
+                .description("Assinantes SSE (e de long-polling) conectados")
+                .register(registry);
+        Gauge.builder("lobby.sse.fila.profundidade", this, PedidoEventDispatcher::getProfundidadeTotalFilas)
+                .description("Eventos aguardando envio, somando as filas de todos os assinantes")
+                .register(registry);
+        FunctionCounter.builder("lobby.sse.eventos.publicados", eventosPublicados, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("lobby.sse.eventos.entregues", eventosEntregues, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("lobby.sse.eventos.descartados", eventosDescartados, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("lobby.sse.assinantes.desconectados", assinantesDesconectados, AtomicLong::get)
+                .description("Assinantes desconectados por lentidão ou erro")
+                .register(registry);
+        return Timer.builder("lobby.sse.atraso.despacho")
+                .description("Tempo entre a publicação de um evento e a entrega ao assinante")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,119 @@
+package com.experimentaai.lobby.service;
+
+import com.experimentaai.lobby.dto.PedidoEventoDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Buffer circular com os eventos delta mais recentes, usado para retomar conexões SSE.
+ *
+ * O id de cada evento SSE é "época-versão": a época identifica a execução atual do
+ * servidor (as versões recomeçam a cada inicialização), então um Last-Event-ID de
+ * outra execução nunca é confundido com uma versão desta. Um cliente que reconecta
+ * recebe só os deltas que perdeu, ou um snapshot se já saiu do buffer.
+ */
+@Slf4j
+@Component
+public class PedidoEventoBuffer {
+
+    private final String epoca = Long.toString(System.currentTimeMillis(), 36);
+    private final PedidoEventoSerializado[] eventos;
+
+    // Posição do próximo evento e quantidade de eventos válidos no buffer
+    private int proximo;
+    private int tamanho;
+
+    public PedidoEventoBuffer(@Value("${lobby.sse.buffer-eventos:1024}") int capacidade) {
+        this.eventos = new PedidoEventoSerializado[Math.max(1, capacidade)];
+        log.info("📼 Buffer de retomada SSE iniciado (capacidade: {} eventos, época: {})", eventos.length, epoca);
+    }
+
+    /**
+     * Guarda um evento delta. Os eventos devem chegar em ordem crescente de versão.
+     */
+    public synchronized void registrar(PedidoEventoSerializado evento) {
+        eventos[proximo] = evento;
+        proximo = (proximo + 1) % eventos.length;
+        tamanho = Math.min(tamanho + 1, eventos.length);
+    }
+
+    /**
+     * Descarta todos os eventos (ex.: após restaurar o cache, quando os deltas antigos
+     * não levam mais ao estado atual).
+     */
+    public synchronized void limpar() {
+        Arrays.fill(eventos, null);
+        proximo = 0;
+        tamanho = 0;
+    }
+
+    /**
+     * Eventos com versão maior que a informada, em ordem. Vazio se não for possível
+     * retomar a partir dessa versão (id inválido, de outra execução ou já fora do buffer).
+     */
+    public synchronized Optional<List<PedidoEventoSerializado>> eventosApos(String ultimoEventoId, long versaoAtual) {
+        Optional<Long> versao = extrairVersao(ultimoEventoId);
+        if (versao.isEmpty() || versao.get() > versaoAtual) {
+            return Optional.empty();
+        }
+        List<PedidoEventoSerializado> perdidos = new ArrayList<>();
+        if (versao.get() == versaoAtual) {
+            return Optional.of(perdidos);
+        }
+        int inicio = (proximo - tamanho + eventos.length) % eventos.length;
+        for (int i = 0; i < tamanho; i++) {
+            PedidoEventoSerializado evento = eventos[(inicio + i) % eventos.length];
+            if (evento.evento().getVersao() > versao.get()) {
+                perdidos.add(evento);
+            }
+        }
+        // Só dá para retomar se o primeiro evento perdido ainda estiver no buffer
+        if (perdidos.isEmpty() || versaoInicial(perdidos.get(0).evento()) != versao.get() + 1) {
+            return Optional.empty();
+        }
+        return Optional.of(perdidos);
+    }
+
+    public String getEpoca() {
+        return epoca;
+    }
+
+    public String idDoEvento(PedidoEventoSerializado evento) {
+        return idDaVersao(evento.evento().getVersao());
+    }
+
+    /**
+     * Identificador "época-versão" de uma versão do conjunto de pedidos (também usado como ETag).
+     */
+    public String idDaVersao(long versao) {
+        return epoca + "-" + versao;
+    }
+
+    /**
+     * Primeira versão coberta pelo evento: a do primeiro delta, no caso de um lote.
+     */
+    private static long versaoInicial(PedidoEventoDTO evento) {
+        if (evento.getTipo() == PedidoEventoDTO.Tipo.PEDIDOS_LOTE && evento.getEventos() != null
+                && !evento.getEventos().isEmpty()) {
+            return evento.getEventos().get(0).getVersao();
+        }
+        return evento.getVersao();
+    }
+
+    private Optional<Long> extrairVersao(String ultimoEventoId) {
+        if (ultimoEventoId == null || !ultimoEventoId.startsWith(epoca + "-")) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Long.parseLong(ultimoEventoId.substring(epoca.length() + 1)));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+}
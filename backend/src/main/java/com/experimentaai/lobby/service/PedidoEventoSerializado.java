@@ -0,0 +1,11 @@
+package com.experimentaai.lobby.service;
+
+import com.experimentaai.lobby.dto.PedidoEventoDTO;
+
+/**
+ * Evento de pedidos junto com o seu JSON já serializado.
+ * O JSON é gerado uma única vez e o mesmo array é reaproveitado pelo journal e por
+ * todos os assinantes SSE; por isso nunca deve ser modificado.
+ */
+public record PedidoEventoSerializado(PedidoEventoDTO evento, byte[] json) {
+}
@@ -0,0 +1,363 @@
+package com.experimentaai.lobby.service;
+
+import com.experimentaai.lobby.dto.HistoricoAgregadoDTO;
+import com.experimentaai.lobby.dto.PedidoHistoricoDTO;
+import com.experimentaai.lobby.dto.PedidoResponseDTO;
+import com.experimentaai.lobby.entity.StatusPedido;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Histórico dos pedidos que saíram da fila (removidos ou expirados), fora do store quente:
+ * segmentos append-only, um arquivo JSON Lines por dia da remoção (historico/pedidos-AAAA-MM-DD.jsonl).
+ *
+ * A gravação não bloqueia o sequenciador: os pedidos vão para uma fila e uma thread própria
+ * acrescenta os lotes ao segmento do dia. As consultas de agregados leem só os segmentos
+ * das datas pedidas, linha a linha, sem carregar o arquivo inteiro.
+ */
+@Slf4j
+@Service
+public class PedidoHistoricoService {
+
+    private static final String HISTORICO_DIR_NAME = "historico";
+    private static final String PREFIXO_SEGMENTO = "pedidos-";
+    private static final String SUFIXO_SEGMENTO = ".jsonl";
+    private static final int MAX_LOTE = 512;
+    private static final long MAX_DIAS_CONSULTA = 366;
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader leitorHistorico;
+    private final MeterRegistry meterRegistry;
+    private final Path diretorio;
+    private final BlockingQueue<PedidoHistoricoDTO> fila = new LinkedBlockingQueue<>();
+    private final Thread escritor;
+
+    // Segmentos mais antigos que isso são apagados; 0 mantém para sempre
+    private final int retencaoDias;
+
+    private volatile boolean ativo = true;
+
+    public PedidoHistoricoService(ObjectMapper objectMapper,
+                                  CacheService cacheService,
+                                  @Value("${lobby.historico.retencao-dias:365}") int retencaoDias,
+                                  MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.leitorHistorico = objectMapper.readerFor(PedidoHistoricoDTO.class);
+        this.meterRegistry = meterRegistry;
+        this.retencaoDias = retencaoDias;
+        this.diretorio = Paths.get(cacheService.getCacheDirectoryPath(), HISTORICO_DIR_NAME);
+        this.escritor = new Thread(this::executar, "historico-pedidos");
+        this.escritor.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        try {
+            Files.createDirectories(diretorio);
+        } catch (IOException e) {
+            log.error("Erro ao criar diretório de histórico: {}", e.getMessage());
+        }
+        terminarLinhaIncompleta();
+        escritor.start();
+        apagarSegmentosAntigos();
+        log.info("📚 Histórico de pedidos em: {} (retenção: {} dias)", diretorio.toAbsolutePath(), retencaoDias);
+    }
+
+    /**
+     * Enfileira o pedido que saiu da fila para o segmento do dia. Não faz I/O na thread de quem chama.
+     */
+    public void registrar(PedidoResponseDTO pedido, PedidoHistoricoDTO.Motivo motivo) {
+        if (!ativo) {
+            log.warn("⚠️ Histórico encerrado; pedido {} não registrado", pedido.getId());
+            return;
+        }
+        fila.add(PedidoHistoricoDTO.builder()
+                .id(pedido.getId())
+                .nomeCliente(pedido.getNomeCliente())
+                .status(pedido.getStatus())
+                .motivo(motivo)
+                .dataCriacao(pedido.getDataCriacao())
+                .dataPronto(pedido.getStatus() == StatusPedido.PRONTO ? pedido.getDataAtualizacao() : null)
+                .dataRemocao(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * Agrega os pedidos removidos entre de e ate (inclusive), por dia ou hora da remoção.
+     */
+    public HistoricoAgregadoDTO agregar(LocalDate de, LocalDate ate, HistoricoAgregadoDTO.Granularidade granularidade) {
+        if (ate.isBefore(de)) {
+            throw new IllegalArgumentException("Data final anterior à inicial");
+        }
+        if (ChronoUnit.DAYS.between(de, ate) >= MAX_DIAS_CONSULTA) {
+            throw new IllegalArgumentException("Intervalo máximo de consulta é de " + MAX_DIAS_CONSULTA + " dias");
+        }
+        long inicio = System.nanoTime();
+        Map<LocalDateTime, Acumulador> periodos = new TreeMap<>();
+        List<Path> segmentos = listarSegmentos(de, ate);
+        for (Path segmento : segmentos) {
+            lerSegmento(segmento, pedido -> periodos
+                    .computeIfAbsent(inicioDoPeriodo(pedido.getDataRemocao(), granularidade), chave -> new Acumulador())
+                    .adicionar(pedido));
+        }
+        Timer.builder("lobby.historico.consulta")
+                .description("Tempo para agregar o histórico de pedidos")
+                .register(meterRegistry)
+                .record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+
+        List<HistoricoAgregadoDTO.Periodo> resultado = new ArrayList<>(periodos.size());
+        periodos.forEach((chave, acumulador) -> resultado.add(acumulador.paraPeriodo(chave)));
+        return HistoricoAgregadoDTO.builder()
+                .de(de)
+                .ate(ate)
+                .granularidade(granularidade)
+                .segmentosLidos(segmentos.size())
+                .periodos(resultado)
+                .build();
+    }
+
+    /**
+     * Apaga os segmentos além da retenção, uma vez por dia.
+     */
+    @Scheduled(cron = "${lobby.historico.limpeza-cron:0 30 3 * * *}")
+    public void apagarSegmentosAntigos() {
+        if (retencaoDias <= 0) {
+            return;
+        }
+        LocalDate limite = LocalDate.now().minusDays(retencaoDias);
+        for (Path segmento : listarSegmentos(LocalDate.MIN, limite.minusDays(1))) {
+            try {
+                Files.deleteIfExists(segmento);
+                log.info("🗑️ Segmento de histórico apagado (retenção): {}", segmento.getFileName());
+            } catch (IOException e) {
+                log.warn("Erro ao apagar segmento de histórico {}: {}", segmento.getFileName(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Grava o que estiver na fila e encerra a thread escritora.
+     */
+    @PreDestroy
+    public void encerrar() {
+        ativo = false;
+        try {
+            escritor.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void executar() {
+        List<PedidoHistoricoDTO> lote = new ArrayList<>();
+        while (ativo || !fila.isEmpty()) {
+            try {
+                PedidoHistoricoDTO primeiro = fila.poll(200, TimeUnit.MILLISECONDS);
+                if (primeiro == null) {
+                    continue;
+                }
+                lote.add(primeiro);
+                fila.drainTo(lote, MAX_LOTE - 1);
+                gravarLote(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("❌ Erro inesperado no escritor do histórico: {}", e.getMessage(), e);
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    /**
+     * Uma escrita por segmento por lote (normalmente um só: o do dia).
+     */
+    private void gravarLote(List<PedidoHistoricoDTO> lote) {
+        Map<LocalDate, ByteArrayOutputStream> porDia = new TreeMap<>();
+        for (PedidoHistoricoDTO pedido : lote) {
+            try {
+                ByteArrayOutputStream linhas = porDia.computeIfAbsent(pedido.getDataRemocao().toLocalDate(),
+                        dia -> new ByteArrayOutputStream());
+                linhas.writeBytes(objectMapper.writeValueAsBytes(pedido));
+                linhas.write('\n');
+            } catch (JsonProcessingException e) {
+                log.error("❌ Erro ao serializar pedido {} para o histórico: {}", pedido.getId(), e.getMessage());
+            }
+        }
+        porDia.forEach((dia, linhas) -> {
+            Path segmento = diretorio.resolve(PREFIXO_SEGMENTO + dia + SUFIXO_SEGMENTO);
+            try {
+                Files.write(segmento, linhas.toByteArray(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                log.error("❌ Erro ao gravar segmento de histórico {}: {}", segmento.getFileName(), e.getMessage(), e);
+            }
+        });
+        meterRegistry.counter("lobby.historico.pedidos").increment(lote.size());
+    }
+
+    /**
+     * Se a execução anterior caiu no meio de uma linha, fecha essa linha no segmento mais recente,
+     * para que o próximo registro acrescentado não fique grudado na linha incompleta.
+     */
+    private void terminarLinhaIncompleta() {
+        List<Path> segmentos = listarSegmentos(LocalDate.MIN, LocalDate.MAX);
+        if (segmentos.isEmpty()) {
+            return;
+        }
+        Path ultimo = segmentos.get(segmentos.size() - 1);
+        try (FileChannel canal = FileChannel.open(ultimo, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long tamanho = canal.size();
+            if (tamanho == 0) {
+                return;
+            }
+            ByteBuffer ultimoByte = ByteBuffer.allocate(1);
+            canal.read(ultimoByte, tamanho - 1);
+            if (ultimoByte.get(0) != '\n') {
+                canal.write(ByteBuffer.wrap(new byte[]{'\n'}), tamanho);
+                log.warn("⚠️ Linha incompleta no fim do segmento de histórico {} (gravação interrompida)", ultimo.getFileName());
+            }
+        } catch (IOException e) {
+            log.warn("Erro ao verificar o fim do segmento de histórico {}: {}", ultimo.getFileName(), e.getMessage());
+        }
+    }
+
+    /**
+     * Segmentos cujas datas (pelo nome do arquivo) estão entre de e ate, em ordem de data.
+     */
+    private List<Path> listarSegmentos(LocalDate de, LocalDate ate) {
+        Map<LocalDate, Path> segmentos = new TreeMap<>();
+        if (!Files.isDirectory(diretorio)) {
+            return List.of();
+        }
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio, PREFIXO_SEGMENTO + "*" + SUFIXO_SEGMENTO)) {
+            for (Path arquivo : arquivos) {
+                String nome = arquivo.getFileName().toString();
+                try {
+                    LocalDate dia = LocalDate.parse(nome.substring(PREFIXO_SEGMENTO.length(),
+                            nome.length() - SUFIXO_SEGMENTO.length()));
+                    if (!dia.isBefore(de) && !dia.isAfter(ate)) {
+                        segmentos.put(dia, arquivo);
+                    }
+                } catch (DateTimeParseException e) {
+                    log.warn("⚠️ Arquivo ignorado no histórico: {}", nome);
+                }
+            }
+        } catch (IOException e) {
+            log.error("❌ Erro ao listar segmentos de histórico: {}", e.getMessage(), e);
+        }
+        return new ArrayList<>(segmentos.values());
+    }
+
+    /**
+     * Lê o segmento linha a linha, sem carregar o arquivo inteiro. Uma linha inválida (gravação
+     * interrompida por uma queda, em qualquer ponto do arquivo) é ignorada e a leitura continua;
+     * o mesmo vale para um JSON válido que não seja um registro completo (null ou sem dataRemocao).
+     */
+    private void lerSegmento(Path segmento, Consumer<PedidoHistoricoDTO> consumidor) {
+        try (BufferedReader linhas = Files.newBufferedReader(segmento, StandardCharsets.UTF_8)) {
+            String linha;
+            int numero = 0;
+            while ((linha = linhas.readLine()) != null) {
+                numero++;
+                if (linha.isBlank()) {
+                    continue;
+                }
+                try {
+                    PedidoHistoricoDTO pedido = leitorHistorico.readValue(linha);
+                    if (pedido == null || pedido.getDataRemocao() == null) {
+                        log.warn("⚠️ Linha {} sem dataRemocao ignorada no segmento de histórico {}",
+                                numero, segmento.getFileName());
+                        continue;
+                    }
+                    consumidor.accept(pedido);
+                } catch (JsonProcessingException e) {
+                    log.warn("⚠️ Linha {} inválida ignorada no segmento de histórico {}: {}",
+                            numero, segmento.getFileName(), e.getOriginalMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("⚠️ Leitura do segmento de histórico {} interrompida: {}", segmento.getFileName(), e.getMessage());
+        }
+    }
+
+    private static LocalDateTime inicioDoPeriodo(LocalDateTime dataRemocao, HistoricoAgregadoDTO.Granularidade granularidade) {
+        return granularidade == HistoricoAgregadoDTO.Granularidade.HORA
+                ? dataRemocao.truncatedTo(ChronoUnit.HOURS)
+                : dataRemocao.toLocalDate().atStartOfDay();
+    }
+
+    private static final class Acumulador {
+
+        private long total;
+        private long removidos;
+        private long expirados;
+        private long prontos;
+        private long somaPreparoMs;
+        private long minimoPreparoMs = Long.MAX_VALUE;
+        private long maximoPreparoMs;
+
+        void adicionar(PedidoHistoricoDTO pedido) {
+            total++;
+            if (pedido.getMotivo() == PedidoHistoricoDTO.Motivo.EXPIRADO) {
+                expirados++;
+            } else {
+                removidos++;
+            }
+            if (pedido.getDataPronto() != null && pedido.getDataCriacao() != null) {
+                long preparoMs = Math.max(0, Duration.between(pedido.getDataCriacao(), pedido.getDataPronto()).toMillis());
+                prontos++;
+                somaPreparoMs += preparoMs;
+                minimoPreparoMs = Math.min(minimoPreparoMs, preparoMs);
+                maximoPreparoMs = Math.max(maximoPreparoMs, preparoMs);
+            }
+        }
+
+        HistoricoAgregadoDTO.Periodo paraPeriodo(LocalDateTime inicio) {
+            return HistoricoAgregadoDTO.Periodo.builder()
+                    .inicio(inicio)
+                    .total(total)
+                    .removidos(removidos)
+                    .expirados(expirados)
+                    .prontos(prontos)
+                    .tempoPreparoMedioMs(prontos > 0 ? somaPreparoMs / prontos : null)
+                    .tempoPreparoMinimoMs(prontos > 0 ? minimoPreparoMs : null)
+                    .tempoPreparoMaximoMs(prontos > 0 ? maximoPreparoMs : null)
+                    .build();
+        }
+    }
+}
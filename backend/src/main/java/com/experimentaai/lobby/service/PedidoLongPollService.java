@@ -0,0 +1,84 @@
+package com.experimentaai.lobby.service;
+
+import com.experimentaai.lobby.dto.PedidoEventoDTO;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Esperas de long-polling por mudanças no conjunto de pedidos.
+ *
+ * Cada requisição estacionada é só um CompletableFuture (a requisição HTTP fica em
+ * modo assíncrono, sem prender thread do Tomcat). O serviço se inscreve no dispatcher
+ * como um assinante comum, então a liberação das esperas acontece nas threads do
+ * dispatcher e nunca na thread que fez a mutação.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PedidoLongPollService {
+
+    private final PedidoEventDispatcher eventDispatcher;
+    private final PedidoSnapshotCache snapshotCache;
+    private final PedidoStore pedidoStore;
+
+    private final Set<CompletableFuture<PedidoSnapshotCache.SnapshotSerializado>> esperas = ConcurrentHashMap.newKeySet();
+    // Estatísticas não mudam os pedidos: não liberam as esperas
+    private final PedidoEventDispatcher.PedidoChangeListener listener = evento -> {
+        if (evento.evento().getTipo() != PedidoEventoDTO.Tipo.ESTATISTICAS_PREPARO) {
+            liberarEsperas();
+        }
+    };
+
+    @PostConstruct
+    public void inscrever() {
+        eventDispatcher.inscrever(listener, this::reinscrever, List.of());
+    }
+
+    /**
+     * Retorna um future que completa com a lista serializada assim que a versão do store
+     * for diferente da informada. Cancelar o future remove a espera.
+     */
+    public CompletableFuture<PedidoSnapshotCache.SnapshotSerializado> aguardarVersaoDiferenteDe(long versao) {
+        CompletableFuture<PedidoSnapshotCache.SnapshotSerializado> espera = new CompletableFuture<>();
+        espera.whenComplete((snapshot, erro) -> esperas.remove(espera));
+        esperas.add(espera);
+        // Confere de novo depois de registrar: uma mutação entre a checagem do chamador e o
+        // registro não teria liberado esta espera
+        if (pedidoStore.getVersao() != versao) {
+            espera.complete(snapshotCache.obter());
+        }
+        return espera;
+    }
+
+    public int getTotalEsperas() {
+        return esperas.size();
+    }
+
+    private void liberarEsperas() {
+        if (esperas.isEmpty()) {
+            return;
+        }
+        PedidoSnapshotCache.SnapshotSerializado snapshot = snapshotCache.obter();
+        int liberadas = 0;
+        for (CompletableFuture<PedidoSnapshotCache.SnapshotSerializado> espera : esperas) {
+            if (espera.complete(snapshot)) {
+                liberadas++;
+            }
+        }
+        log.debug("⏳ {} espera(s) de long-polling liberadas na versão {}", liberadas, snapshot.versao());
+    }
+
+    private void reinscrever() {
+        // Não deveria acontecer (o listener só completa futures), mas sem ele as esperas só terminariam por timeout
+        log.warn("⚠️ Assinante de long-polling desconectado pelo dispatcher, inscrevendo novamente");
+        eventDispatcher.inscrever(listener, this::reinscrever, List.of());
+        liberarEsperas();
+    }
+}
@@ -0,0 +1,298 @@
+package com.experimentaai.lobby.service;
+
+import com.experimentaai.lobby.dto.PedidoResponseDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gravação dos pedidos no banco fora do caminho da requisição (write-behind): o store em memória
+ * é a fonte de verdade, e cada pedido criado ou alterado entra numa fila que uma thread própria
+ * grava em lotes (JDBC batch, um MERGE por pedido, só o estado mais recente de cada id).
+ *
+ * Com write-behind desativado, quem altera um pedido espera a gravação antes de responder
+ * (confirmar(), com limite de tempo), mas a escrita continua passando pelo mesmo lote. No
+ * encerramento a fila é gravada antes de a thread parar.
+ *
+ * Um lote que falha é tentado de novo algumas vezes; depois disso é gravado pedido a pedido e
+ * os que ainda falham são descartados do banco (continuam no store e no journal), para que uma
+ * linha ruim não trave todas as gravações seguintes.
+ */
+@Slf4j
+@Service
+public class PedidoPersistenciaService {
+
+    private static final String SQL_GRAVAR = "MERGE INTO pedidos (id, nome_cliente, status, data_criacao, data_atualizacao) "
+            + "KEY (id) VALUES (?, ?, ?, ?, ?)";
+    private static final long ESPERA_RETENTATIVA_MS = 1000;
+    private static final int TENTATIVAS_NO_ENCERRAMENTO = 3;
+
+    /**
+     * Pedido a gravar, ou marca de descarga (pedido nulo) que completa quando tudo antes dela foi gravado.
+     */
+    private record Pendente(PedidoResponseDTO pedido, long enfileiradoEm, CompletableFuture<Void> descarga) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final BlockingQueue<Pendente> fila = new LinkedBlockingQueue<>();
+    private final AtomicInteger pendentes = new AtomicInteger();
+    private final Thread escritor;
+
+    private final boolean writeBehind;
+    private final int tamanhoLote;
+    private final int tentativasMaximas;
+    private final long timeoutConfirmacaoMs;
+
+    private volatile boolean ativo = true;
+    // Momento em que entrou na fila o pedido mais antigo do lote em gravação; 0 sem lote em gravação
+    private volatile long maisAntigoEmGravacao;
+
+    public PedidoPersistenciaService(JdbcTemplate jdbcTemplate,
+                                     @Value("${lobby.pedidos.persistencia.write-behind:true}") boolean writeBehind,
+                                     @Value("${lobby.pedidos.persistencia.lote-maximo:500}") int tamanhoLote,
+                                     @Value("${lobby.pedidos.persistencia.tentativas:5}") int tentativasMaximas,
+                                     @Value("${lobby.pedidos.persistencia.confirmacao-timeout-ms:10000}") long timeoutConfirmacaoMs,
+                                     MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+        this.writeBehind = writeBehind;
+        this.tamanhoLote = Math.max(1, tamanhoLote);
+        this.tentativasMaximas = Math.max(1, tentativasMaximas);
+        this.timeoutConfirmacaoMs = Math.max(1, timeoutConfirmacaoMs);
+        this.escritor = new Thread(this::executar, "persistencia-pedidos");
+        this.escritor.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        Gauge.builder("lobby.pedidos.persistencia.pendentes", pendentes, AtomicInteger::get)
+                .description("Pedidos alterados no store ainda não gravados no banco")
+                .register(meterRegistry);
+        Gauge.builder("lobby.pedidos.persistencia.atraso", this, PedidoPersistenciaService::atrasoMs)
+                .description("Há quanto tempo o pedido mais antigo aguarda gravação no banco")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        escritor.start();
+        log.info("💾 Persistência de pedidos no banco: {} (lote de até {})",
+                writeBehind ? "write-behind" : "síncrona", tamanhoLote);
+    }
+
+    /**
+     * Enfileira o estado atual do pedido para gravação. Não faz I/O na thread de quem chama.
+     */
+    public void enfileirar(PedidoResponseDTO pedido) {
+        if (!ativo) {
+            log.warn("⚠️ Persistência encerrada; pedido {} não gravado no banco", pedido.getId());
+            return;
+        }
+        pendentes.incrementAndGet();
+        fila.add(new Pendente(pedido, System.currentTimeMillis(), null));
+    }
+
+    /**
+     * Completa quando tudo o que foi enfileirado até agora estiver gravado no banco.
+     */
+    public CompletableFuture<Void> descarregar() {
+        if (!ativo) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> descarga = new CompletableFuture<>();
+        fila.add(new Pendente(null, System.currentTimeMillis(), descarga));
+        return descarga;
+    }
+
+    /**
+     * No modo síncrono, espera a gravação de tudo o que foi enfileirado até agora;
+     * com write-behind retorna na hora.
+     *
+     * @throws IllegalStateException se a gravação não terminar em confirmacao-timeout-ms
+     */
+    public void confirmar() {
+        if (writeBehind) {
+            return;
+        }
+        try {
+            descarregar().get(timeoutConfirmacaoMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Gravação no banco não confirmada em " + timeoutConfirmacaoMs
+                    + " ms (" + pendentes.get() + " pedidos pendentes)");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Espera pela gravação no banco interrompida");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha ao confirmar gravação no banco: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Espera a gravação do que já foi enfileirado, por no máximo timeoutMs (0 = sem limite).
+     * Usado antes de consultas ao banco, para que elas vejam as alterações já confirmadas.
+     */
+    public void aguardarDescarga(long timeoutMs) {
+        try {
+            if (timeoutMs > 0) {
+                descarregar().get(timeoutMs, TimeUnit.MILLISECONDS);
+            } else {
+                descarregar().get();
+            }
+        } catch (TimeoutException e) {
+            log.warn("⚠️ Gravação de pedidos no banco atrasada ({} pendentes); consulta segue sem esperar", pendentes.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("⚠️ Falha ao aguardar gravação de pedidos no banco: {}", e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Grava o que estiver na fila e encerra a thread escritora.
+     */
+    @PreDestroy
+    public void encerrar() {
+        ativo = false;
+        try {
+            escritor.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (pendentes.get() > 0) {
+            log.error("❌ {} pedidos não foram gravados no banco antes do encerramento", pendentes.get());
+        } else {
+            log.info("💾 Pedidos pendentes gravados no banco antes do encerramento");
+        }
+    }
+
+    private void executar() {
+        List<Pendente> lote = new ArrayList<>();
+        while (ativo || !fila.isEmpty()) {
+            try {
+                Pendente primeiro = fila.poll(200, TimeUnit.MILLISECONDS);
+                if (primeiro == null) {
+                    continue;
+                }
+                lote.add(primeiro);
+                fila.drainTo(lote, tamanhoLote - 1);
+                gravarComRetentativa(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("❌ Erro inesperado no escritor de pedidos: {}", e.getMessage(), e);
+            } finally {
+                concluirDescargas(lote);
+                lote.clear();
+            }
+        }
+    }
+
+    /**
+     * Em caso de falha o lote é tentado de novo até tentativasMaximas vezes (no encerramento,
+     * no máximo TENTATIVAS_NO_ENCERRAMENTO, para não travar o shutdown); depois disso cada
+     * pedido é gravado sozinho e os que falharem são descartados.
+     */
+    private void gravarComRetentativa(List<Pendente> lote) throws InterruptedException {
+        Map<Long, PedidoResponseDTO> pedidos = new LinkedHashMap<>();
+        int gravacoes = 0;
+        for (Pendente pendente : lote) {
+            if (pendente.pedido() != null) {
+                pedidos.put(pendente.pedido().getId(), pendente.pedido());
+                maisAntigoEmGravacao = maisAntigoEmGravacao == 0 ? pendente.enfileiradoEm() : maisAntigoEmGravacao;
+                gravacoes++;
+            }
+        }
+        if (pedidos.isEmpty()) {
+            return;
+        }
+        int tentativas = 0;
+        try {
+            while (true) {
+                try {
+                    gravar(new ArrayList<>(pedidos.values()));
+                    return;
+                } catch (DataAccessException e) {
+                    tentativas++;
+                    meterRegistry.counter("lobby.pedidos.persistencia.falhas").increment();
+                    int limite = ativo ? tentativasMaximas : Math.min(tentativasMaximas, TENTATIVAS_NO_ENCERRAMENTO);
+                    if (tentativas >= limite) {
+                        log.error("❌ Lote de {} pedidos falhou {} vezes; gravando pedido a pedido: {}",
+                                pedidos.size(), tentativas, e.getMessage());
+                        gravarIndividualmente(pedidos.values());
+                        return;
+                    }
+                    log.error("❌ Erro ao gravar {} pedidos no banco (tentativa {}): {}", pedidos.size(), tentativas, e.getMessage());
+                    Thread.sleep(ESPERA_RETENTATIVA_MS);
+                }
+            }
+        } finally {
+            maisAntigoEmGravacao = 0;
+            pendentes.addAndGet(-gravacoes);
+        }
+    }
+
+    /**
+     * Grava cada pedido em separado, para isolar as linhas que o banco recusa; essas são
+     * descartadas do banco com log e métrica, sem segurar o restante da fila.
+     */
+    private void gravarIndividualmente(Iterable<PedidoResponseDTO> pedidos) {
+        for (PedidoResponseDTO pedido : pedidos) {
+            try {
+                gravar(List.of(pedido));
+            } catch (DataAccessException e) {
+                meterRegistry.counter("lobby.pedidos.persistencia.descartados").increment();
+                log.error("❌ Pedido {} descartado da gravação no banco (segue no store e no journal): {}",
+                        pedido.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private void gravar(List<PedidoResponseDTO> pedidos) {
+        Timer.Sample amostra = Timer.start(meterRegistry);
+        jdbcTemplate.batchUpdate(SQL_GRAVAR, pedidos, pedidos.size(), (comando, pedido) -> {
+            comando.setLong(1, pedido.getId());
+            comando.setString(2, pedido.getNomeCliente());
+            comando.setString(3, pedido.getStatus().name());
+            comando.setObject(4, pedido.getDataCriacao());
+            comando.setObject(5, pedido.getDataAtualizacao());
+        });
+        amostra.stop(meterRegistry.timer("lobby.pedidos.persistencia.lote"));
+        meterRegistry.summary("lobby.pedidos.persistencia.lote.tamanho").record(pedidos.size());
+        log.debug("💾 {} pedidos gravados no banco", pedidos.size());
+    }
+
+    private static void concluirDescargas(List<Pendente> lote) {
+        for (Pendente pendente : lote) {
+            if (pendente.descarga() != null) {
+                pendente.descarga().complete(null);
+            }
+        }
+    }
+
+    private double atrasoMs() {
+        long maisAntigo = maisAntigoEmGravacao;
+        if (maisAntigo == 0) {
+            Pendente proximo = fila.peek();
+            maisAntigo = proximo != null ? proximo.enfileiradoEm() : 0;
+        }
+        return maisAntigo == 0 ? 0 : System.currentTimeMillis() - maisAntigo;
+    }
+}
@@ -0,0 +1,161 @@
+package com.experimentaai.lobby.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Sequenciador de comandos com um único escritor: toda mutação de pedidos (e tudo o que precisa
+ * ser ordenado com elas, como inscrição de listeners, restauração e compactação) é executada
+ * em ordem por uma única thread, dona do estado. Nenhum lock é necessário entre as mutações.
+ *
+ * Os comandos são aplicados assim que chegam e agrupados em lotes naturais: o lote termina assim
+ * que a fila esvazia, sem esperar mais comandos, então uma mutação isolada não ganha latência.
+ * Enquanto comandos continuam chegando o lote segue aberto, até a janela (contada do primeiro
+ * comando) expirar ou atingir MAX_COMANDOS_LOTE. Ao fim de cada lote roda a ação de fim de lote
+ * (gravar e publicar os eventos do lote de uma vez), então sob carga o lote cresce sozinho.
+ * Leituras não passam pelo sequenciador.
+ */
+@Slf4j
+public class PedidoSequenciador {
+
+    private static final int MAX_COMANDOS_LOTE = 256;
+
+    private record Comando<T>(Supplier<T> acao, CompletableFuture<T> resultado) {
+
+        void executar() {
+            try {
+                resultado.complete(acao.get());
+            } catch (RuntimeException e) {
+                resultado.completeExceptionally(e);
+            }
+        }
+    }
+
+    private final BlockingQueue<Comando<?>> fila;
+    private final long janelaNanos;
+    private final IntConsumer aoFimDoLote;
+    private final Thread escritor;
+
+    private volatile boolean ativo = true;
+
+    /**
+     * @param janelaMs duração máxima de um lote sob fluxo contínuo de comandos; 0 limita só pela quantidade
+     * @param aoFimDoLote recebe a quantidade de comandos do lote; roda na thread escritora
+     */
+    public PedidoSequenciador(int capacidade, long janelaMs, IntConsumer aoFimDoLote) {
+        this.fila = new ArrayBlockingQueue<>(Math.max(1, capacidade));
+        this.janelaNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, janelaMs));
+        this.aoFimDoLote = aoFimDoLote;
+        this.escritor = new Thread(this::executar, "sequenciador-pedidos");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+        log.info("🧵 Sequenciador de pedidos iniciado (capacidade: {}, janela: {} ms)", capacidade, Math.max(0, janelaMs));
+    }
+
+    /**
+     * Enfileira o comando; o retorno completa com o resultado (ou a exceção) da ação, logo após
+     * ela ser aplicada. Com a fila cheia, quem submete aguarda (contrapressão).
+     * Chamado de dentro de outro comando, executa na hora, na mesma thread.
+     */
+    public <T> CompletableFuture<T> submeter(Supplier<T> acao) {
+        Comando<T> comando = new Comando<>(acao, new CompletableFuture<>());
+        if (Thread.currentThread() == escritor) {
+            comando.executar();
+            return comando.resultado();
+        }
+        if (!ativo) {
+            comando.resultado().completeExceptionally(new IllegalStateException("Sequenciador de pedidos já foi encerrado"));
+            return comando.resultado();
+        }
+        try {
+            fila.put(comando);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            comando.resultado().completeExceptionally(e);
+        }
+        return comando.resultado();
+    }
+
+    /**
+     * Submete e aguarda o resultado. Exceções da ação são relançadas como estão
+     * (ex.: pedido não encontrado continua virando 404).
+     */
+    public <T> T executar(Supplier<T> acao) {
+        try {
+            return submeter(acao).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    public int getTamanhoFila() {
+        return fila.size();
+    }
+
+    /**
+     * Aplica o que já estava na fila, encerra o último lote e para a thread escritora.
+     */
+    public void encerrar() {
+        if (!ativo) {
+            return;
+        }
+        submeter(() -> {
+            ativo = false;
+            return null;
+        }).join();
+        try {
+            escritor.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void executar() {
+        while (ativo || !fila.isEmpty()) {
+            int aplicados = 0;
+            try {
+                fila.take().executar();
+                aplicados = 1;
+                long inicio = System.nanoTime();
+                while (aplicados < MAX_COMANDOS_LOTE) {
+                    if (janelaNanos > 0 && System.nanoTime() - inicio >= janelaNanos) {
+                        break;
+                    }
+                    Comando<?> proximo = fila.poll();
+                    if (proximo == null) {
+                        break;
+                    }
+                    proximo.executar();
+                    aplicados++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                ativo = false;
+            } finally {
+                finalizarLote(aplicados);
+            }
+        }
+        log.info("🧵 Sequenciador de pedidos encerrado");
+    }
+
+    private void finalizarLote(int aplicados) {
+        if (aplicados == 0) {
+            return;
+        }
+        try {
+            aoFimDoLote.accept(aplicados);
+        } catch (RuntimeException e) {
+            log.error("❌ Erro ao finalizar lote de {} comandos de pedidos: {}", aplicados, e.getMessage(), e);
+        }
+    }
+}
@@ -1,21 +1,48 @@
 package com.experimentaai.lobby.service;
 
+import com.experimentaai.lobby.dto.EstatisticasPreparoDTO;
+import com.experimentaai.lobby.dto.PaginaPedidosDTO;
+import com.experimentaai.lobby.dto.PedidoEventoDTO;
+import com.experimentaai.lobby.dto.PedidoHistoricoDTO;
+import com.experimentaai.lobby.dto.PedidoLoteRespostaDTO;
 import com.experimentaai.lobby.dto.PedidoRequestDTO;
 import com.experimentaai.lobby.dto.PedidoResponseDTO;
+import com.experimentaai.lobby.dto.PrevisaoFilaDTO;
 import com.experimentaai.lobby.entity.Pedido;
 import com.experimentaai.lobby.entity.StatusPedido;
+import com.experimentaai.lobby.mapper.PedidoJsonCodec;
 import com.experimentaai.lobby.mapper.PedidoMapper;
 import com.experimentaai.lobby.repository.PedidoRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
@@ -25,322 +52,949 @@ public class PedidoService {
     private final PedidoRepository pedidoRepository;
     private final PedidoMapper pedidoMapper;
     private final CacheService cacheService;
+    private final PedidoStore pedidoStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final PedidoEventDispatcher eventDispatcher;
+    private final PedidoSnapshotCache snapshotCache;
+    private final PedidoEventoBuffer eventoBuffer;
+    private final PedidoJsonCodec pedidoJsonCodec;
+    private final PedidoHistoricoService historicoService;
+    private final PedidoPersistenciaService persistenciaService;
+    private final MeterRegistry meterRegistry;
+
+    private static final int LIMITE_MAXIMO_PAGINA = 500;
+    private static final String METRICA_OPERACAO = "lobby.pedidos.operacao";
+    private static final int MAX_EVENTOS_LOTE = 256;
+    // Espera máxima pela gravação pendente antes de consultar o histórico no banco
+    private static final long ESPERA_PERSISTENCIA_CONSULTA_MS = 2000;
 
-    @Transactional
-    public PedidoResponseDTO criarPedido(PedidoRequestDTO requestDTO) {
-        // Criar pedido no banco (para manter compatibilidade)
-        Pedido pedido = pedidoMapper.toEntity(requestDTO);
-        Pedido pedidoSalvo = pedidoRepository.save(pedido);
-        PedidoResponseDTO novoPedido = pedidoMapper.toResponseDTO(pedidoSalvo);
-
-        // CACHE É A FONTE DE VERDADE - adicionar ao cache
-        Object cacheAtual = cacheService.carregarCachePedidos();
-        if (cacheAtual instanceof List) {
-            List<?> cacheList = (List<?>) cacheAtual;
-
-            // Criar lista mutável a partir do cache
-            List<PedidoResponseDTO> pedidosCache = new ArrayList<>();
-            for (Object item : cacheList) {
-                PedidoResponseDTO pedidoDTO = null;
-                if (item instanceof PedidoResponseDTO) {
-                    pedidoDTO = (PedidoResponseDTO) item;
-                } else if (item instanceof Map) {
-                    // Converter Map para PedidoResponseDTO
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> map = (Map<String, Object>) item;
-                    pedidoDTO = converterMapParaPedidoDTO(map);
-                }
-                if (pedidoDTO != null) {
-                    pedidosCache.add(pedidoDTO);
-                }
-            }
+    /**
+     * Estado resultante de uma mudança em um pedido e a gravação que a confirma
+     * (null se nada mudou).
+     */
+    private record MudancaPedido(PedidoResponseDTO pedido, CompletableFuture<Void> gravacao) {
+    }
+
+    /**
+     * Resultado de uma entrada de uma operação em lote e o delta correspondente (null se nada mudou).
+     */
+    private record AlteracaoLote(PedidoLoteRespostaDTO.Item item, PedidoEventoDTO evento) {
+    }
+
+    private record LoteAplicado(List<PedidoLoteRespostaDTO.Item> itens, int alterados, long versao,
+                                CompletableFuture<Void> gravacao) {
+    }
+
+    /**
+     * Snapshot do store tirado junto com a rotação do journal, e se a rotação deixou journal a descartar.
+     */
+    private record Compactacao(List<PedidoResponseDTO> snapshot, boolean journalRotacionado) {
+    }
+
+    @Value("${lobby.sse.snapshot-a-cada-eventos:50}")
+    private long snapshotACadaEventos;
+
+    // Janela de coalescência: duração máxima de um lote do sequenciador (o lote fecha antes, assim
+    // que a fila esvazia); os deltas do lote viram um único evento (uma linha no journal, uma notificação)
+    @Value("${lobby.pedidos.coalescencia.janela-ms:20}")
+    private long janelaCoalescenciaMs;
+
+    @Value("${lobby.pedidos.sequenciador.capacidade:10000}")
+    private int capacidadeSequenciador;
+
+    // Tempo que um pedido fica PRONTO na lista antes de ser removido automaticamente; 0 desativa
+    @Value("${lobby.pedidos.expiracao.pronto-ms:1800000}")
+    private long expiracaoProntoMs;
+
+    @Value("${lobby.pedidos.expiracao.tick-ms:1000}")
+    private long tickExpiracaoMs;
+
+    @Value("${lobby.pedidos.estatisticas.janela-minutos:60}")
+    private int janelaEstatisticasMinutos;
+
+    @Value("${lobby.pedidos.estatisticas.janela-vazao-minutos:10}")
+    private int janelaVazaoMinutos;
 
-            // Adicionar novo pedido ao cache
-            pedidosCache.add(novoPedido);
+    // Estatísticas de preparo, atualizadas a cada pedido criado ou pronto (custo O(1) por evento)
+    private EstatisticasPreparo estatisticas;
 
-            // Salvar cache atualizado
-            cacheService.salvarCachePedidos(pedidosCache);
-            log.info("✅ Novo pedido {} adicionado ao cache. Total: {}", novoPedido.getId(), pedidosCache.size());
-        } else {
-            // Se não houver cache, criar novo com o pedido
-            List<PedidoResponseDTO> novoCache = new ArrayList<>();
-            novoCache.add(novoPedido);
-            cacheService.salvarCachePedidos(novoCache);
-            log.info("✅ Cache criado com novo pedido {}", novoPedido.getId());
+    // Estimativas iniciais da previsão de pronto, até haver pedidos prontos para a média móvel
+    @Value("${lobby.pedidos.previsao.tempo-preparo-inicial-ms:300000}")
+    private long tempoPreparoInicialMs;
+
+    @Value("${lobby.pedidos.previsao.intervalo-inicial-ms:60000}")
+    private long intervaloInicialMs;
+
+    // Rotação do journal e gravação do snapshot que a cobre acontecem juntas, uma compactação
+    // (ou restauração) por vez: sem isso um snapshot mais antigo poderia sobrescrever um mais novo
+    private final Object compactacaoLock = new Object();
+
+    // Única thread que altera o store e publica eventos; os campos abaixo só são acessados nela
+    private PedidoSequenciador sequenciador;
+    private final List<PedidoEventoDTO> lotePendente = new ArrayList<>();
+    private CompletableFuture<Void> gravacaoLotePendente;
+    private long versaoUltimoSnapshotPeriodico;
+    private RodaTemporizadora<Long> expiracoes;
+    private boolean estatisticasAlteradas;
+    private PrevisaoFila previsaoFila;
+    // Último id atribuído; os ids são gerados aqui, não pelo banco, para não esperar o insert
+    private long ultimoIdPedido;
+
+    /**
+     * Carrega o snapshot do arquivo e reaplica o journal uma única vez para o store em memória.
+     * A partir daqui os arquivos são apenas destino de durabilidade.
+     */
+    @PostConstruct
+    public void inicializarStore() {
+        sequenciador = new PedidoSequenciador(capacidadeSequenciador, janelaCoalescenciaMs, this::finalizarLote);
+        Gauge.builder("lobby.pedidos.sequenciador.fila", sequenciador, PedidoSequenciador::getTamanhoFila)
+                .description("Comandos de pedidos aguardando o sequenciador")
+                .register(meterRegistry);
+        expiracoes = new RodaTemporizadora<>(tickExpiracaoMs, 512, System.currentTimeMillis());
+        Gauge.builder("lobby.pedidos.expiracao.agendados", expiracoes, RodaTemporizadora::tamanho)
+                .description("Pedidos prontos aguardando expiração automática")
+                .register(meterRegistry);
+        estatisticas = new EstatisticasPreparo(janelaEstatisticasMinutos, janelaVazaoMinutos);
+        previsaoFila = new PrevisaoFila(tempoPreparoInicialMs, intervaloInicialMs);
+        Gauge.builder("lobby.pedidos.previsao.tempo-preparo", previsaoFila, PrevisaoFila::getTempoPreparoMs)
+                .description("Tempo de preparo estimado (média móvel) usado na previsão de pronto")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+
+        List<PedidoEventoDTO> eventos = cacheService.carregarJournalPedidos();
+        List<PedidoResponseDTO> pedidos = cacheService.carregarCachePedidos();
+        long maiorIdBanco = maiorIdNoBanco();
+        sequenciador.executar(() -> {
+            pedidoStore.carregar(pedidos);
+            eventos.forEach(this::reaplicarEvento);
+            reagendarExpiracoes();
+            reconstituirEstatisticas();
+            reconstruirPrevisoes();
+            ultimoIdPedido = Math.max(pedidoStore.maiorId(), maiorIdBanco);
+            return null;
+        });
+        if (!eventos.isEmpty()) {
+            compactarCache();
         }
+    }
 
-        return novoPedido;
+    public PedidoResponseDTO criarPedido(PedidoRequestDTO requestDTO) {
+        return medir("criar", () -> criarPedidoNoStore(requestDTO));
+    }
+
+    private PedidoResponseDTO criarPedidoNoStore(PedidoRequestDTO requestDTO) {
+        // STORE É A FONTE DE VERDADE - adicionar em memória (pelo sequenciador) e registrar no journal;
+        // o banco é gravado depois, em lote, pelo PedidoPersistenciaService
+        MudancaPedido mudanca = sequenciador.executar(() -> {
+            PedidoResponseDTO novoPedido = adicionarAoStore(requestDTO);
+            return new MudancaPedido(novoPedido, registrarEvento(PedidoEventoDTO.Tipo.PEDIDO_CRIADO, novoPedido));
+        });
+        aguardarGravacao(mudanca.gravacao());
+        persistenciaService.confirmar();
+        log.info("✅ Novo pedido {} adicionado ao store. Total: {}", mudanca.pedido().getId(), pedidoStore.tamanho());
+
+        return mudanca.pedido();
     }
 
-    @Transactional(readOnly = true)
-    public List<PedidoResponseDTO> listarTodosPedidos() {
-        List<PedidoResponseDTO> pedidos = pedidoRepository.findAllByOrderByDataCriacaoAsc()
-                .stream()
-                .map(pedidoMapper::toResponseDTO)
-                .toList();
+    /**
+     * Cria vários pedidos de uma vez: um único comando no sequenciador, um único evento para
+     * os assinantes e, em seguida, um insert em lote no banco.
+     */
+    public PedidoLoteRespostaDTO criarPedidos(List<PedidoRequestDTO> requisicoes) {
+        PedidoLoteRespostaDTO resposta = medir("criar_lote", () -> aplicarLote("criar", requisicoes, requisicao -> {
+            PedidoResponseDTO novo = adicionarAoStore(requisicao);
+            return alterado(novo.getId(), PedidoLoteRespostaDTO.Resultado.CRIADO, novo, PedidoEventoDTO.Tipo.PEDIDO_CRIADO);
+        }));
+        persistenciaService.confirmar();
+        return resposta;
+    }
 
-        // NÃO atualizar cache automaticamente ao listar
-        // O cache só deve ser atualizado durante ações (criar, atualizar, remover)
-        // Isso evita zerar o arquivo quando não há pedidos no banco
+    /**
+     * Cria o pedido com o próximo id e o coloca no store e na fila de gravação do banco.
+     * Roda na thread do sequenciador. O pedido novo entra no fim da fila: nenhum outro muda de posição.
+     */
+    private PedidoResponseDTO adicionarAoStore(PedidoRequestDTO requisicao) {
+        LocalDateTime agora = LocalDateTime.now();
+        PedidoResponseDTO novo = PedidoResponseDTO.builder()
+                .id(++ultimoIdPedido)
+                .nomeCliente(requisicao.getNomeCliente())
+                .status(StatusPedido.PREPARANDO)
+                .dataCriacao(agora)
+                .dataAtualizacao(agora)
+                .build();
+        int posicao = previsaoFila.entrar(novo.getId());
+        novo.setPosicaoFila(posicao);
+        novo.setPrevisaoPronto(preverPronto(novo.getDataCriacao(), posicao));
+        persistenciaService.enfileirar(novo);
+        PedidoResponseDTO adicionado = pedidoStore.adicionar(novo);
+        estatisticas.registrarCriado(emMillis(adicionado.getDataCriacao()));
+        return adicionado;
+    }
 
-        return pedidos;
+    /**
+     * Página de pedidos (histórico do banco) em ordem de criação, a partir do cursor.
+     * O cursor é opaco para o cliente e codifica (dataCriacao, id) do último pedido entregue.
+     * Sem transação própria: a espera pela gravação pendente não segura conexão, e a página é
+     * uma única consulta do repositório.
+     */
+    public PaginaPedidosDTO listarPedidosPaginados(String cursor, int limite) {
+        persistenciaService.aguardarDescarga(ESPERA_PERSISTENCIA_CONSULTA_MS);
+        int tamanho = Math.max(1, Math.min(limite, LIMITE_MAXIMO_PAGINA));
+        List<Pedido> pagina = buscarPagina(cursor != null ? decodificarCursor(cursor) : null, tamanho + 1);
+        boolean temMais = pagina.size() > tamanho;
+        List<Pedido> pedidos = temMais ? pagina.subList(0, tamanho) : pagina;
+        return PaginaPedidosDTO.builder()
+                .pedidos(pedidos.stream().map(pedidoMapper::toResponseDTO).toList())
+                .proximoCursor(temMais ? codificarCursor(pedidos.get(pedidos.size() - 1)) : null)
+                .build();
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Percorre todos os pedidos do banco em ordem de criação, página por página (keyset),
+     * entregando cada página ao consumidor. A memória usada fica limitada a uma página,
+     * independente do tamanho do histórico.
+     */
+    public void percorrerTodosPedidos(int tamanhoPagina, Consumer<List<PedidoResponseDTO>> consumidor) {
+        persistenciaService.aguardarDescarga(ESPERA_PERSISTENCIA_CONSULTA_MS);
+        Pedido ultimo = null;
+        while (true) {
+            List<Pedido> pagina = buscarPagina(ultimo, tamanhoPagina);
+            if (pagina.isEmpty()) {
+                return;
+            }
+            consumidor.accept(pagina.stream().map(pedidoMapper::toResponseDTO).toList());
+            if (pagina.size() < tamanhoPagina) {
+                return;
+            }
+            ultimo = pagina.get(pagina.size() - 1);
+        }
+    }
+
+    private List<Pedido> buscarPagina(Pedido ultimo, int tamanho) {
+        PageRequest pagina = PageRequest.of(0, tamanho);
+        if (ultimo == null) {
+            return pedidoRepository.findAllByOrderByDataCriacaoAscIdAsc(pagina);
+        }
+        return pedidoRepository.findPaginaApos(ultimo.getDataCriacao(), ultimo.getId(), pagina);
+    }
+
+    private static String codificarCursor(Pedido pedido) {
+        String valor = pedido.getDataCriacao() + "|" + pedido.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Pedido decodificarCursor(String cursor) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.lastIndexOf('|');
+            return Pedido.builder()
+                    .dataCriacao(LocalDateTime.parse(valor.substring(0, separador)))
+                    .id(Long.parseLong(valor.substring(separador + 1)))
+                    .build();
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor de paginação inválido: " + cursor, e);
+        }
+    }
+
+    /**
+     * Lista os pedidos de um status pelo índice em memória do store (mesma fonte de verdade
+     * do cache e do SSE), sem consulta ordenada no banco.
+     */
     public List<PedidoResponseDTO> listarPedidosPorStatus(StatusPedido status) {
-        return pedidoRepository.findByStatusOrderByDataCriacaoAsc(status)
-                .stream()
-                .map(pedidoMapper::toResponseDTO)
-                .toList();
+        return medir("listar_por_status", () -> pedidoStore.listarPorStatus(status));
+    }
+
+    /**
+     * Lista os pedidos ativos direto do store em memória (sem leitura de arquivo).
+     */
+    public List<PedidoResponseDTO> listarPedidosAtivos() {
+        return medir("listar_ativos", pedidoStore::listar);
+    }
+
+    /**
+     * Lista de pedidos ativos já serializada em JSON, compartilhada até a próxima mutação.
+     */
+    public PedidoSnapshotCache.SnapshotSerializado obterPedidosAtivosSerializados() {
+        return medir("listar_serializado", snapshotCache::obter);
+    }
+
+    /**
+     * Pedidos ativos em JSON legível (indentado), para exportação manual. O mesmo arquivo
+     * pode ser reimportado em POST /api/cache/pedidos.
+     */
+    public byte[] exportarPedidosAtivosJson() {
+        return pedidoJsonCodec.escreverListaIndentada(pedidoStore.listar());
     }
 
-    @Transactional
     public PedidoResponseDTO atualizarStatusParaPronto(Long id) {
-        log.info("🔍 Buscando pedido {} para marcar como pronto", id);
-
-        // CACHE É A FONTE DE VERDADE - buscar do cache primeiro
-        Object cacheAtual = cacheService.carregarCachePedidos();
-        log.info("📦 Cache carregado: {}", cacheAtual != null ? "existe" : "não existe");
-
-        if (cacheAtual instanceof List) {
-            List<?> cacheList = (List<?>) cacheAtual;
-            log.info("📋 Cache contém {} itens", cacheList.size());
-
-            // Criar lista mutável a partir do cache
-            // O cache pode conter Map (JSON deserializado) ou PedidoResponseDTO
-            List<PedidoResponseDTO> pedidosCache = new ArrayList<>();
-            for (Object item : cacheList) {
-                PedidoResponseDTO pedidoDTO = null;
-                if (item instanceof PedidoResponseDTO) {
-                    pedidoDTO = (PedidoResponseDTO) item;
-                } else if (item instanceof java.util.Map) {
-                    // Converter Map para PedidoResponseDTO
-                    @SuppressWarnings("unchecked")
-                    java.util.Map<String, Object> map = (java.util.Map<String, Object>) item;
-                    pedidoDTO = converterMapParaPedidoDTO(map);
-                }
-                if (pedidoDTO != null) {
-                    pedidosCache.add(pedidoDTO);
-                }
-            }
+        return medir("marcar_pronto", () -> marcarComoProntoNoStore(id));
+    }
 
-            log.info("✅ {} pedidos convertidos do cache", pedidosCache.size());
-
-            // Buscar pedido no cache (comparar IDs como Long)
-            // O ID pode vir como Integer do JSON, então converter para Long
-            PedidoResponseDTO pedidoEncontrado = pedidosCache.stream()
-                    .filter(p -> {
-                        Long pedidoId = p.getId();
-                        boolean match = pedidoId != null && pedidoId.equals(id);
-                        if (!match && pedidoId != null) {
-                            log.debug("🔍 Comparando pedido ID {} (tipo: {}) com {} (tipo: {})",
-                                    pedidoId, pedidoId.getClass().getSimpleName(),
-                                    id, id.getClass().getSimpleName());
-                        }
-                        return match;
-                    })
-                    .findFirst()
-                    .orElse(null);
+    private PedidoResponseDTO marcarComoProntoNoStore(Long id) {
+        log.info("🔍 Marcando pedido {} como pronto", id);
+
+        MudancaPedido mudanca = sequenciador.executar(() -> marcarComoProntoNoSequenciador(id));
+        if (mudanca.gravacao() == null) {
+            log.info("ℹ️ Pedido {} já estava pronto", id);
+            return mudanca.pedido();
+        }
+        aguardarGravacao(mudanca.gravacao());
+        persistenciaService.confirmar();
+        registrarTempoPreparo(mudanca.pedido());
+        log.info("✅ Pedido {} ({}) marcado como pronto", id, mudanca.pedido().getNomeCliente());
+
+        return mudanca.pedido();
+    }
 
-            if (pedidoEncontrado == null) {
-                log.error("❌ Pedido {} não encontrado no cache. Pedidos disponíveis: {}",
-                        id, pedidosCache.stream().map(PedidoResponseDTO::getId).toList());
-                throw new RuntimeException("Pedido não encontrado com id: " + id);
+    /**
+     * Roda na thread do sequenciador. Marcar de novo um pedido já pronto não gera evento.
+     */
+    private MudancaPedido marcarComoProntoNoSequenciador(Long id) {
+        PedidoResponseDTO atual = pedidoStore.buscarPorId(id)
+                .orElseThrow(() -> {
+                    log.error("❌ Pedido {} não encontrado no store", id);
+                    return new RuntimeException("Pedido não encontrado com id: " + id);
+                });
+        if (atual.getStatus() == StatusPedido.PRONTO) {
+            return new MudancaPedido(atual, null);
+        }
+        PedidoEventoDTO evento = pedidoStore.atomicamente(() ->
+                comPrevisoes(criarEvento(PedidoEventoDTO.Tipo.PEDIDO_PRONTO, marcarComoPronto(atual))));
+        return new MudancaPedido(evento.getPedido(), registrarEventos(List.of(evento)));
+    }
+
+    /**
+     * Marca vários pedidos como prontos em um único comando e um único evento.
+     * Ids inexistentes e pedidos já prontos são informados por item, sem abortar o lote.
+     */
+    public PedidoLoteRespostaDTO marcarPedidosComoProntos(List<Long> ids) {
+        PedidoLoteRespostaDTO resposta = medir("marcar_pronto_lote", () -> aplicarLote("marcar como pronto", ids, id -> {
+            Optional<PedidoResponseDTO> atual = pedidoStore.buscarPorId(id);
+            if (atual.isEmpty()) {
+                return inalterado(id, PedidoLoteRespostaDTO.Resultado.NAO_ENCONTRADO, null);
             }
+            if (atual.get().getStatus() == StatusPedido.PRONTO) {
+                return inalterado(id, PedidoLoteRespostaDTO.Resultado.INALTERADO, atual.get());
+            }
+            return alterado(id, PedidoLoteRespostaDTO.Resultado.PRONTO, marcarComoPronto(atual.get()),
+                    PedidoEventoDTO.Tipo.PEDIDO_PRONTO);
+        }));
+        persistenciaService.confirmar();
+        resposta.getResultados().stream()
+                .filter(item -> item.getResultado() == PedidoLoteRespostaDTO.Resultado.PRONTO)
+                .forEach(item -> registrarTempoPreparo(item.getPedido()));
+        return resposta;
+    }
+
+    /**
+     * Troca o pedido pelo mesmo pedido com status PRONTO. Roda na thread do sequenciador.
+     */
+    private PedidoResponseDTO marcarComoPronto(PedidoResponseDTO atual) {
+        PedidoResponseDTO atualizado = PedidoResponseDTO.builder()
+                .id(atual.getId())
+                .nomeCliente(atual.getNomeCliente())
+                .status(StatusPedido.PRONTO)
+                .dataCriacao(atual.getDataCriacao())
+                .dataAtualizacao(LocalDateTime.now())
+                .build();
+        if (!pedidoStore.substituirSeInalterado(atual, atualizado)) {
+            throw new IllegalStateException("Pedido " + atual.getId() + " alterado fora do sequenciador");
+        }
+        persistenciaService.enfileirar(atualizado);
+        agendarExpiracao(atualizado);
+        previsaoFila.sair(atualizado.getId());
+        previsaoFila.registrarPronto(emMillis(atualizado.getDataCriacao()), emMillis(atualizado.getDataAtualizacao()));
+        estatisticas.registrarPronto(emMillis(atualizado.getDataCriacao()), emMillis(atualizado.getDataAtualizacao()));
+        estatisticasAlteradas = true;
+        return atualizado;
+    }
+
+    public void removerPedido(Long id) {
+        medir("remover", () -> {
+            removerPedidoDoStore(id);
+            return null;
+        });
+    }
 
-            log.info("✅ Pedido {} encontrado no cache: {}", id, pedidoEncontrado.getNomeCliente());
+    private void removerPedidoDoStore(Long id) {
+        log.info("🔍 Removendo pedido {} do store", id);
+
+        CompletableFuture<Void> gravacao = sequenciador.executar(() -> {
+            PedidoEventoDTO evento = pedidoStore.atomicamente(() -> {
+                PedidoResponseDTO removido = removerDoStore(id, PedidoHistoricoDTO.Motivo.REMOVIDO)
+                        .orElseThrow(() -> {
+                            log.error("❌ Pedido {} não encontrado no store", id);
+                            return new RuntimeException("Pedido não encontrado com id: " + id);
+                        });
+                return comPrevisoes(criarEvento(PedidoEventoDTO.Tipo.PEDIDO_REMOVIDO, removido));
+            });
+            return registrarEventos(List.of(evento));
+        });
+        aguardarGravacao(gravacao);
+        log.info("✅ Pedido {} removido do store. Total restante: {}", id, pedidoStore.tamanho());
+    }
 
-            // Atualizar status no cache
-            pedidoEncontrado.setStatus(StatusPedido.PRONTO);
+    /**
+     * Remove vários pedidos em um único comando e um único evento.
+     * Ids inexistentes são informados por item, sem abortar o lote.
+     */
+    public PedidoLoteRespostaDTO removerPedidos(List<Long> ids) {
+        return medir("remover_lote", () -> aplicarLote("remover", ids,
+                id -> removerItem(id, PedidoHistoricoDTO.Motivo.REMOVIDO)));
+    }
 
-            // Salvar cache atualizado
-            cacheService.salvarCachePedidos(pedidosCache);
-            log.info("✅ Pedido {} marcado como pronto no cache", id);
+    private AlteracaoLote removerItem(Long id, PedidoHistoricoDTO.Motivo motivo) {
+        return removerDoStore(id, motivo)
+                .map(removido -> alterado(id, PedidoLoteRespostaDTO.Resultado.REMOVIDO, removido,
+                        PedidoEventoDTO.Tipo.PEDIDO_REMOVIDO))
+                .orElseGet(() -> inalterado(id, PedidoLoteRespostaDTO.Resultado.NAO_ENCONTRADO, null));
+    }
 
-            return pedidoEncontrado;
+    /**
+     * Remove o pedido do store e da roda de expiração e o envia para o histórico.
+     * Roda na thread do sequenciador.
+     */
+    private Optional<PedidoResponseDTO> removerDoStore(Long id, PedidoHistoricoDTO.Motivo motivo) {
+        Optional<PedidoResponseDTO> removido = pedidoStore.remover(id);
+        removido.ifPresent(pedido -> {
+            expiracoes.cancelar(id);
+            previsaoFila.sair(id);
+            historicoService.registrar(pedido, motivo);
+        });
+        return removido;
+    }
+
+    /**
+     * Remove os pedidos que estão PRONTO há mais de lobby.pedidos.expiracao.pronto-ms, com eventos
+     * de remoção normais (um único lote por tick). Os prazos vêm da roda de temporização:
+     * nenhuma varredura da lista e nenhuma tarefa agendada por pedido.
+     */
+    @Scheduled(initialDelayString = "${lobby.pedidos.expiracao.tick-ms:1000}",
+            fixedDelayString = "${lobby.pedidos.expiracao.tick-ms:1000}")
+    public void expirarPedidosProntos() {
+        if (expiracaoProntoMs <= 0) {
+            return;
         }
+        LoteAplicado lote = sequenciador.executar(() -> {
+            List<Long> vencidos = expiracoes.avancar(System.currentTimeMillis());
+            return vencidos.isEmpty() ? null : aplicarLoteNoSequenciador(vencidos,
+                    id -> removerItem(id, PedidoHistoricoDTO.Motivo.EXPIRADO));
+        });
+        if (lote == null) {
+            return;
+        }
+        aguardarGravacao(lote.gravacao());
+        meterRegistry.counter("lobby.pedidos.expirados").increment(lote.alterados());
+        log.info("⏰ {} pedidos prontos expirados e removidos. Total: {}", lote.alterados(), pedidoStore.tamanho());
+    }
 
-        // Fallback: tentar buscar no banco (caso cache não exista ainda)
-        Pedido pedido = buscarPedidoPorId(id);
-        pedido.setStatus(StatusPedido.PRONTO);
-        Pedido pedidoAtualizado = pedidoRepository.save(pedido);
-        PedidoResponseDTO response = pedidoMapper.toResponseDTO(pedidoAtualizado);
+    // Prazo contado a partir de quando o pedido ficou pronto (dataAtualizacao), então sobrevive a reinícios
+    private void agendarExpiracao(PedidoResponseDTO pedido) {
+        if (expiracaoProntoMs <= 0) {
+            return;
+        }
+        expiracoes.agendar(pedido.getId(), emMillis(pedido.getDataAtualizacao()) + expiracaoProntoMs);
+    }
 
-        // Atualizar cache com dados do banco
-        try {
-            atualizarCachePedidos();
-        } catch (Exception e) {
-            log.error("Erro ao atualizar cache após marcar pedido como pronto (id: {}): {}", id, e.getMessage(), e);
+    private static long emMillis(LocalDateTime data) {
+        return data != null ? data.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : System.currentTimeMillis();
+    }
+
+    /**
+     * Recalcula posição e previsão dos pedidos que mudaram de lugar na fila, grava no store
+     * (sem nova versão) e as anexa ao delta. Deve rodar dentro de pedidoStore.atomicamente(),
+     * junto com a mutação, para que nenhum snapshot veja a fila com posições antigas.
+     */
+    private PedidoEventoDTO comPrevisoes(PedidoEventoDTO evento) {
+        List<PrevisaoFilaDTO> previsoes = recalcularPrevisoes();
+        if (!previsoes.isEmpty()) {
+            evento.setPrevisoes(previsoes);
         }
+        return evento;
+    }
 
-        return response;
+    private List<PrevisaoFilaDTO> recalcularPrevisoes() {
+        List<Long> alterados = previsaoFila.idsAlterados();
+        if (alterados.isEmpty()) {
+            return List.of();
+        }
+        List<PedidoResponseDTO> pedidos = new ArrayList<>(alterados.size());
+        List<PrevisaoFilaDTO> previsoes = new ArrayList<>(alterados.size());
+        for (Long id : alterados) {
+            pedidoStore.buscarPorId(id).ifPresent(pedido -> {
+                int posicao = previsaoFila.posicao(id);
+                pedido.setPosicaoFila(posicao);
+                pedido.setPrevisaoPronto(preverPronto(pedido.getDataCriacao(), posicao));
+                pedidos.add(pedido);
+                previsoes.add(PrevisaoFilaDTO.builder()
+                        .id(id)
+                        .posicaoFila(posicao)
+                        .previsaoPronto(pedido.getPrevisaoPronto())
+                        .build());
+            });
+        }
+        pedidoStore.atualizarPrevisoes(pedidos);
+        return previsoes;
     }
 
-    @Transactional
-    public void removerPedido(Long id) {
-        log.info("🔍 Removendo pedido {} do cache", id);
-
-        // CACHE É A FONTE DE VERDADE - buscar do cache primeiro
-        Object cacheAtual = cacheService.carregarCachePedidos();
-        if (cacheAtual instanceof List) {
-            List<?> cacheList = (List<?>) cacheAtual;
-
-            // Criar lista mutável a partir do cache
-            // O cache pode conter Map (JSON deserializado) ou PedidoResponseDTO
-            List<PedidoResponseDTO> pedidosCache = new ArrayList<>();
-            for (Object item : cacheList) {
-                PedidoResponseDTO pedidoDTO = null;
-                if (item instanceof PedidoResponseDTO) {
-                    pedidoDTO = (PedidoResponseDTO) item;
-                } else if (item instanceof Map) {
-                    // Converter Map para PedidoResponseDTO
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> map = (Map<String, Object>) item;
-                    pedidoDTO = converterMapParaPedidoDTO(map);
+    private LocalDateTime preverPronto(LocalDateTime dataCriacao, int posicao) {
+        long previsaoMs = previsaoFila.prever(emMillis(dataCriacao), posicao, System.currentTimeMillis());
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(previsaoMs), ZoneId.systemDefault());
+    }
+
+    /**
+     * Refaz a fila de preparo a partir do store (carga inicial e restauração) e grava posição
+     * e previsão em todos os pedidos em preparo.
+     */
+    private void reconstruirPrevisoes() {
+        previsaoFila.reconstruir(pedidoStore.listarPorStatus(StatusPedido.PREPARANDO).stream()
+                .map(PedidoResponseDTO::getId)
+                .toList());
+        pedidoStore.atomicamente(this::recalcularPrevisoes);
+    }
+
+    /**
+     * Refaz a roda de expiração a partir do store (carga inicial e restauração do cache).
+     */
+    private void reagendarExpiracoes() {
+        expiracoes.limpar();
+        pedidoStore.listarPorStatus(StatusPedido.PRONTO).forEach(this::agendarExpiracao);
+    }
+
+    /**
+     * Aplica a alteração de cada entrada em um único comando do sequenciador. Leitores veem o
+     * lote inteiro ou nada dele, e os deltas vão juntos em um único evento (uma linha no journal).
+     */
+    private <T> PedidoLoteRespostaDTO aplicarLote(String operacao, List<T> entradas, Function<T, AlteracaoLote> alterar) {
+        LoteAplicado lote = sequenciador.executar(() -> aplicarLoteNoSequenciador(entradas, alterar));
+        aguardarGravacao(lote.gravacao());
+        log.info("✅ Lote ({}): {} de {} pedidos alterados. Total: {}", operacao, lote.alterados(), entradas.size(), pedidoStore.tamanho());
+        return PedidoLoteRespostaDTO.builder()
+                .versao(lote.versao())
+                .alterados(lote.alterados())
+                .resultados(lote.itens())
+                .build();
+    }
+
+    private <T> LoteAplicado aplicarLoteNoSequenciador(List<T> entradas, Function<T, AlteracaoLote> alterar) {
+        List<PedidoLoteRespostaDTO.Item> itens = new ArrayList<>(entradas.size());
+        List<PedidoEventoDTO> eventos = new ArrayList<>();
+        CompletableFuture<Void> gravacao;
+        try {
+            pedidoStore.atomicamente(() -> {
+                for (T entrada : entradas) {
+                    AlteracaoLote alteracao = alterar.apply(entrada);
+                    itens.add(alteracao.item());
+                    if (alteracao.evento() != null) {
+                        eventos.add(alteracao.evento());
+                    }
                 }
-                if (pedidoDTO != null) {
-                    pedidosCache.add(pedidoDTO);
+                // Posições recalculadas uma vez por lote; vão no último delta, aplicado por último
+                if (!eventos.isEmpty()) {
+                    comPrevisoes(eventos.get(eventos.size() - 1));
                 }
+                return null;
+            });
+        } finally {
+            // Fora do lock do store (a publicação pode ler um snapshot dele). Alterações já
+            // aplicadas precisam do evento mesmo se uma entrada falhar.
+            gravacao = registrarEventos(eventos);
+        }
+        return new LoteAplicado(itens, eventos.size(), pedidoStore.getVersao(), gravacao);
+    }
+
+    // Chamado logo após a mutação no store, para que o delta leve a versão dela
+    private AlteracaoLote alterado(Long id, PedidoLoteRespostaDTO.Resultado resultado, PedidoResponseDTO pedido,
+                                   PedidoEventoDTO.Tipo tipo) {
+        return new AlteracaoLote(item(id, resultado, pedido), criarEvento(tipo, pedido));
+    }
+
+    private static AlteracaoLote inalterado(Long id, PedidoLoteRespostaDTO.Resultado resultado, PedidoResponseDTO pedido) {
+        return new AlteracaoLote(item(id, resultado, pedido), null);
+    }
+
+    private static PedidoLoteRespostaDTO.Item item(Long id, PedidoLoteRespostaDTO.Resultado resultado, PedidoResponseDTO pedido) {
+        return PedidoLoteRespostaDTO.Item.builder()
+                .id(id)
+                .resultado(resultado)
+                .pedido(pedido)
+                .build();
+    }
+
+    /**
+     * Substitui todos os pedidos ativos pela lista recebida (restauração manual do cache).
+     */
+    public void restaurarCache(List<PedidoResponseDTO> pedidos) {
+        Timer.Sample amostra = Timer.start(meterRegistry);
+        synchronized (compactacaoLock) {
+            Compactacao compactacao = sequenciador.executar(() -> {
+                publicarLotePendente();
+                pedidoStore.carregar(pedidos);
+                reagendarExpiracoes();
+                reconstruirPrevisoes();
+                ultimoIdPedido = Math.max(ultimoIdPedido, pedidoStore.maiorId());
+                // Deltas anteriores à restauração não levam mais ao estado atual
+                eventoBuffer.limpar();
+                boolean rotacionado = cacheService.rotacionarJournalPedidos();
+                return new Compactacao(pedidoStore.listar(), rotacionado);
+            });
+            cacheService.concluirCompactacaoPedidos(compactacao.snapshot(), compactacao.journalRotacionado());
+        }
+        sequenciador.executar(() -> {
+            eventDispatcher.publicar(snapshotCache.obterEvento());
+            return null;
+        });
+        amostra.stop(meterRegistry.timer(METRICA_OPERACAO, "operacao", "restaurar_cache", "resultado", "sucesso"));
+    }
+
+    /**
+     * Registra um listener de eventos de pedidos. O listener recebe primeiro um snapshot
+     * completo e depois os deltas; a inscrição roda no sequenciador, entre as mutações,
+     * então nenhum delta é perdido ou entregue antes do snapshot.
+     *
+     * Se ultimoEventoId (Last-Event-ID) ainda puder ser retomado pelo buffer, o listener
+     * recebe apenas os deltas perdidos no lugar do snapshot.
+     */
+    public void inscreverListener(PedidoEventDispatcher.PedidoChangeListener listener, Runnable aoDesconectar,
+                                  String ultimoEventoId) {
+        sequenciador.executar(() -> {
+            // Deltas ainda na janela de coalescência já estão no store; publicá-los antes de escolher snapshot ou retomada
+            publicarLotePendente();
+            List<PedidoEventoSerializado> iniciais = eventoBuffer
+                    .eventosApos(ultimoEventoId, pedidoStore.getVersao())
+                    .filter(perdidos -> perdidos.size() <= eventDispatcher.getCapacidadeFila())
+                    .orElse(null);
+            if (iniciais == null) {
+                if (ultimoEventoId != null) {
+                    log.info("📼 Não foi possível retomar a partir do evento {}, enviando snapshot", ultimoEventoId);
+                }
+                iniciais = List.of(snapshotCache.obterEvento());
+            } else {
+                log.info("📼 Conexão SSE retomada a partir do evento {} ({} eventos perdidos)",
+                        ultimoEventoId, iniciais.size());
             }
+            List<PedidoEventoSerializado> eventosIniciais = new ArrayList<>(iniciais);
+            criarEventoEstatisticas().ifPresent(eventosIniciais::add);
+            eventDispatcher.inscrever(listener, aoDesconectar, eventosIniciais);
+            return null;
+        });
+    }
 
-            // Verificar se pedido existe no cache
-            boolean pedidoExiste = pedidosCache.stream()
-                    .anyMatch(p -> p.getId() != null && p.getId().equals(id));
+    public String idDoEvento(PedidoEventoSerializado evento) {
+        return eventoBuffer.idDoEvento(evento);
+    }
+
+    /**
+     * ETag do conjunto de pedidos ativos; muda a cada mutação e a cada reinício do servidor.
+     */
+    public String etagPedidosAtivos() {
+        return eventoBuffer.idDaVersao(pedidoStore.getVersao());
+    }
+
+    public String etagPedidosAtivos(PedidoSnapshotCache.SnapshotSerializado snapshot) {
+        return eventoBuffer.idDaVersao(snapshot.versao());
+    }
 
-            if (!pedidoExiste) {
-                log.error("❌ Pedido {} não encontrado no cache. Pedidos disponíveis: {}",
-                        id, pedidosCache.stream().map(PedidoResponseDTO::getId).toList());
-                throw new RuntimeException("Pedido não encontrado com id: " + id);
+    public boolean temPedidosAtivos() {
+        return pedidoStore.tamanho() > 0;
+    }
+
+    public long getVersaoPedidosAtivos() {
+        return pedidoStore.getVersao();
+    }
+
+    /**
+     * Execução atual do servidor; uma versão só é comparável com outra da mesma época.
+     */
+    public String getEpocaPedidosAtivos() {
+        return eventoBuffer.getEpoca();
+    }
+
+    public byte[] obterStatusPedidosAtivos(PedidoSnapshotCache.SnapshotSerializado snapshot) {
+        return snapshotCache.obterStatus(snapshot, eventoBuffer.getEpoca());
+    }
+
+    public void cancelarListener(PedidoEventDispatcher.PedidoChangeListener listener) {
+        eventDispatcher.cancelar(listener);
+    }
+
+    /**
+     * Compacta o journal em um novo snapshot, em background.
+     * O snapshot do store e a rotação do journal acontecem no sequenciador, entre as mutações,
+     * então o snapshot cobre exatamente os eventos rotacionados; a gravação ocorre fora dele,
+     * mas ainda sob compactacaoLock, para que outra rotação só aconteça depois desta gravação.
+     */
+    @Scheduled(initialDelayString = "${lobby.cache.compactacao.intervalo-ms:60000}",
+            fixedDelayString = "${lobby.cache.compactacao.intervalo-ms:60000}")
+    public void compactarCache() {
+        synchronized (compactacaoLock) {
+            Compactacao compactacao = sequenciador.executar(() -> {
+                publicarLotePendente();
+                if (cacheService.getEventosNoJournal() == 0 && !cacheService.existeJournalPendente()) {
+                    return null;
+                }
+                boolean rotacionado = cacheService.rotacionarJournalPedidos();
+                return new Compactacao(pedidoStore.listar(), rotacionado);
+            });
+            if (compactacao == null) {
+                return;
             }
+            Timer.Sample amostra = Timer.start(meterRegistry);
+            cacheService.concluirCompactacaoPedidos(compactacao.snapshot(), compactacao.journalRotacionado());
+            amostra.stop(meterRegistry.timer(METRICA_OPERACAO, "operacao", "compactar", "resultado", "sucesso"));
+        }
+    }
 
-            // Remover do cache
-            pedidosCache.removeIf(p -> p.getId() != null && p.getId().equals(id));
+    @PreDestroy
+    public void encerrar() {
+        compactarCache();
+        sequenciador.encerrar();
+    }
 
-            // Salvar cache atualizado (pode ser array vazio se era o último pedido)
-            cacheService.salvarCachePedidos(pedidosCache);
-            log.info("✅ Pedido {} removido do cache. Total restante: {}", id, pedidosCache.size());
+    /**
+     * Acrescenta o delta ao lote do sequenciador. Roda na thread do sequenciador, logo após a
+     * mutação no store, então journal e listeners veem os eventos na ordem das versões.
+     *
+     * Os deltas de um lote (ex.: vários pedidos removidos em sequência) viram um único
+     * PEDIDOS_LOTE, gravado e notificado uma vez ao fim do lote. O retorno completa quando
+     * o lote for gravado.
+     */
+    private CompletableFuture<Void> registrarEvento(PedidoEventoDTO.Tipo tipo, PedidoResponseDTO pedido) {
+        return registrarEventos(List.of(criarEvento(tipo, pedido)));
+    }
 
-            return;
+    /**
+     * Acrescenta os deltas ao lote; os deltas de uma mesma chamada nunca são divididos
+     * entre dois eventos.
+     */
+    private CompletableFuture<Void> registrarEventos(List<PedidoEventoDTO> eventos) {
+        if (eventos.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!lotePendente.isEmpty() && lotePendente.size() + eventos.size() > MAX_EVENTOS_LOTE) {
+            publicarLotePendente();
+        }
+        if (lotePendente.isEmpty()) {
+            gravacaoLotePendente = new CompletableFuture<>();
+        }
+        lotePendente.addAll(eventos);
+        CompletableFuture<Void> gravacao = gravacaoLotePendente;
+        if (lotePendente.size() >= MAX_EVENTOS_LOTE) {
+            publicarLotePendente();
         }
+        return gravacao;
+    }
 
-        // Fallback: tentar remover do banco (caso cache não exista ainda)
-        Pedido pedido = buscarPedidoPorId(id);
-        pedidoRepository.delete(pedido);
+    // Delta com a versão atual do store, ou seja, a da mutação que acabou de acontecer
+    private PedidoEventoDTO criarEvento(PedidoEventoDTO.Tipo tipo, PedidoResponseDTO pedido) {
+        return PedidoEventoDTO.builder()
+                .tipo(tipo)
+                .versao(pedidoStore.getVersao())
+                .pedido(pedido)
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
 
-        // Atualizar cache com dados do banco
-        try {
-            atualizarCachePedidos();
-        } catch (Exception e) {
-            log.error("Erro ao atualizar cache após remover pedido (id: {}): {}", id, e.getMessage(), e);
+    private void finalizarLote(int comandos) {
+        meterRegistry.summary("lobby.pedidos.sequenciador.comandos").record(comandos);
+        publicarLotePendente();
+        // No máximo um evento de estatísticas por lote, e só se algum pedido ficou pronto
+        if (estatisticasAlteradas) {
+            publicarEstatisticas();
         }
     }
 
-    private Pedido buscarPedidoPorId(Long id) {
-        return pedidoRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Pedido não encontrado com id: " + id));
+    public EstatisticasPreparoDTO obterEstatisticasPreparo() {
+        return estatisticas.calcular(System.currentTimeMillis());
     }
 
     /**
-     * Atualiza o cache de pedidos com os dados atuais do banco de dados.
-     * Executa em uma nova transação para garantir que leia os dados após o commit.
+     * Republica as estatísticas periodicamente: a janela desliza mesmo sem pedidos ficando prontos.
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void atualizarCachePedidos() {
-        try {
-            List<PedidoResponseDTO> todosPedidos = pedidoRepository.findAllByOrderByDataCriacaoAsc()
-                    .stream()
-                    .map(pedidoMapper::toResponseDTO)
-                    .toList();
-            atualizarCachePedidos(todosPedidos);
-        } catch (Exception e) {
-            // Log do erro mas não interrompe a operação principal
-            log.warn("Erro ao atualizar cache de pedidos: {}", e.getMessage(), e);
-            // Não relançar a exceção para não causar erro 500
-        }
+    @Scheduled(initialDelayString = "${lobby.pedidos.estatisticas.intervalo-sse-ms:30000}",
+            fixedDelayString = "${lobby.pedidos.estatisticas.intervalo-sse-ms:30000}")
+    public void publicarEstatisticasPeriodicas() {
+        sequenciador.executar(() -> {
+            publicarEstatisticas();
+            return null;
+        });
     }
 
     /**
-     * Converte um Map (JSON deserializado) para PedidoResponseDTO
+     * Evento ESTATISTICAS_PREPARO para os assinantes SSE. Não vai para o journal nem para o
+     * buffer de retomada: não altera os pedidos, e a versão é a atual. Roda na thread do sequenciador.
      */
-    private PedidoResponseDTO converterMapParaPedidoDTO(Map<String, Object> map) {
+    private void publicarEstatisticas() {
+        estatisticasAlteradas = false;
+        criarEventoEstatisticas().ifPresent(eventDispatcher::publicar);
+    }
+
+    private Optional<PedidoEventoSerializado> criarEventoEstatisticas() {
+        PedidoEventoDTO evento = PedidoEventoDTO.builder()
+                .tipo(PedidoEventoDTO.Tipo.ESTATISTICAS_PREPARO)
+                .versao(pedidoStore.getVersao())
+                .estatisticas(obterEstatisticasPreparo())
+                .timestamp(System.currentTimeMillis())
+                .build();
         try {
-            PedidoResponseDTO.PedidoResponseDTOBuilder builder = PedidoResponseDTO.builder();
+            return Optional.of(new PedidoEventoSerializado(evento, pedidoJsonCodec.escreverEvento(evento)));
+        } catch (UncheckedIOException e) {
+            log.error("❌ Erro ao serializar estatísticas de preparo: {}", e.getMessage(), e);
+            return Optional.empty();
+        }
+    }
 
-            // ID
-            Object idObj = map.get("id");
-            if (idObj != null) {
-                Long id = idObj instanceof Number ? ((Number) idObj).longValue() : Long.parseLong(idObj.toString());
-                builder.id(id);
+    /**
+     * Refaz a janela das estatísticas e as médias móveis da previsão a partir dos pedidos carregados
+     * (só na inicialização; pedidos já removidos antes do reinício não entram).
+     */
+    private void reconstituirEstatisticas() {
+        estatisticas.limpar();
+        for (PedidoResponseDTO pedido : pedidoStore.listar()) {
+            estatisticas.registrarCriado(emMillis(pedido.getDataCriacao()));
+            if (pedido.getStatus() == StatusPedido.PRONTO) {
+                estatisticas.registrarPronto(emMillis(pedido.getDataCriacao()), emMillis(pedido.getDataAtualizacao()));
             }
+        }
+        // Médias móveis na ordem em que os pedidos ficaram prontos
+        pedidoStore.listarPorStatus(StatusPedido.PRONTO).stream()
+                .sorted(Comparator.comparing(PedidoResponseDTO::getDataAtualizacao,
+                        Comparator.nullsFirst(Comparator.naturalOrder())))
+                .forEach(pedido -> previsaoFila.registrarPronto(emMillis(pedido.getDataCriacao()),
+                        emMillis(pedido.getDataAtualizacao())));
+    }
 
-            // Nome Cliente
-            Object nomeClienteObj = map.get("nomeCliente");
-            if (nomeClienteObj != null) {
-                builder.nomeCliente(nomeClienteObj.toString());
+    /**
+     * Publica os deltas pendentes como um único evento (o próprio delta, se for só um).
+     * Roda na thread do sequenciador.
+     */
+    private void publicarLotePendente() {
+        if (lotePendente.isEmpty()) {
+            return;
+        }
+        List<PedidoEventoDTO> eventos = List.copyOf(lotePendente);
+        CompletableFuture<Void> concluida = gravacaoLotePendente;
+        lotePendente.clear();
+        gravacaoLotePendente = null;
+
+        PedidoEventoDTO evento = eventos.size() == 1 ? eventos.get(0) : PedidoEventoDTO.builder()
+                .tipo(PedidoEventoDTO.Tipo.PEDIDOS_LOTE)
+                .versao(eventos.get(eventos.size() - 1).getVersao())
+                .eventos(eventos)
+                .timestamp(System.currentTimeMillis())
+                .build();
+        meterRegistry.summary("lobby.pedidos.lote.eventos").record(eventos.size());
+        if (eventos.size() > 1) {
+            log.debug("📦 {} eventos de pedidos coalescidos em um lote (versão {})", eventos.size(), evento.getVersao());
+        }
+        publicarEvento(evento).whenComplete((resultado, erro) -> {
+            if (erro != null) {
+                concluida.completeExceptionally(erro);
+            } else {
+                concluida.complete(null);
             }
+        });
+    }
 
-            // Status
-            Object statusObj = map.get("status");
-            if (statusObj != null) {
-                StatusPedido status = statusObj instanceof StatusPedido
-                        ? (StatusPedido) statusObj
-                        : StatusPedido.valueOf(statusObj.toString());
-                builder.status(status);
-            }
+    /**
+     * Grava o evento no journal, guarda no buffer de retomada e o publica para os listeners.
+     * Roda na thread do sequenciador.
+     */
+    private CompletableFuture<Void> publicarEvento(PedidoEventoDTO evento) {
+        // Serializado uma única vez: os mesmos bytes vão para o journal e para todos os assinantes
+        PedidoEventoSerializado serializado;
+        try {
+            serializado = new PedidoEventoSerializado(evento, pedidoJsonCodec.escreverEvento(evento));
+        } catch (UncheckedIOException e) {
+            log.error("❌ Erro ao serializar evento {} (versão {}): {}", evento.getTipo(), evento.getVersao(), e.getMessage(), e);
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<Void> gravacao = cacheService.registrarEventoPedido(serializado);
+        eventoBuffer.registrar(serializado);
+        // Apenas enfileira para os assinantes; o envio SSE acontece nas threads do dispatcher
+        eventDispatcher.publicar(serializado);
+        // Snapshot ocasional para ressincronizar clientes que perderam algum delta
+        if (snapshotACadaEventos > 0 && evento.getVersao() - versaoUltimoSnapshotPeriodico >= snapshotACadaEventos) {
+            versaoUltimoSnapshotPeriodico = evento.getVersao();
+            eventDispatcher.publicar(snapshotCache.obterEvento());
+        }
+        return gravacao;
+    }
 
-            // Data Criação
-            Object dataCriacaoObj = map.get("dataCriacao");
-            if (dataCriacaoObj != null) {
-                LocalDateTime dataCriacao = converterParaLocalDateTime(dataCriacaoObj);
-                builder.dataCriacao(dataCriacao);
-            }
+    /**
+     * Mede a operação no timer lobby.pedidos.operacao, separando sucesso de erro
+     * (ex.: pedido não encontrado).
+     */
+    private <T> T medir(String operacao, Supplier<T> acao) {
+        Timer.Sample amostra = Timer.start(meterRegistry);
+        String resultado = "erro";
+        try {
+            T retorno = acao.get();
+            resultado = "sucesso";
+            return retorno;
+        } finally {
+            amostra.stop(meterRegistry.timer(METRICA_OPERACAO, "operacao", operacao, "resultado", resultado));
+        }
+    }
 
-            // Data Atualização
-            Object dataAtualizacaoObj = map.get("dataAtualizacao");
-            if (dataAtualizacaoObj != null) {
-                LocalDateTime dataAtualizacao = converterParaLocalDateTime(dataAtualizacaoObj);
-                builder.dataAtualizacao(dataAtualizacao);
-            }
+    /**
+     * Distribuição do tempo de preparo: da criação do pedido até ser marcado como pronto.
+     */
+    private void registrarTempoPreparo(PedidoResponseDTO pedido) {
+        if (pedido.getDataCriacao() == null || pedido.getDataAtualizacao() == null) {
+            return;
+        }
+        Duration preparo = Duration.between(pedido.getDataCriacao(), pedido.getDataAtualizacao());
+        if (!preparo.isNegative()) {
+            meterRegistry.timer("lobby.pedidos.tempo.preparo").record(preparo);
+        }
+    }
 
-            return builder.build();
-        } catch (Exception e) {
-            log.error("Erro ao converter Map para PedidoResponseDTO: {}", e.getMessage(), e);
-            return null;
+    /**
+     * Aguarda a gravação do evento fora do sequenciador, para que mutações concorrentes
+     * entrem no mesmo lote (e na mesma escrita do journal).
+     */
+    private void aguardarGravacao(CompletableFuture<Void> gravacao) {
+        try {
+            gravacao.join();
+        } catch (CompletionException e) {
+            // Não interromper a operação principal: o store em memória já foi atualizado
+            log.error("❌ Erro ao gravar evento no journal: {}", e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
         }
     }
 
     /**
-     * Converte objeto para LocalDateTime
+     * Reaplica um evento do journal. Os eventos carregam o estado completo do pedido,
+     * então reaplicar um evento já contido no snapshot não altera o resultado.
      */
-    private LocalDateTime converterParaLocalDateTime(Object obj) {
-        if (obj instanceof LocalDateTime) {
-            return (LocalDateTime) obj;
+    private void reaplicarEvento(PedidoEventoDTO evento) {
+        if (evento.getTipo() == PedidoEventoDTO.Tipo.PEDIDOS_LOTE && evento.getEventos() != null) {
+            evento.getEventos().forEach(this::reaplicarEvento);
+            return;
         }
-        if (obj instanceof String) {
-            try {
-                // Tentar formato ISO-8601
-                return LocalDateTime.parse(obj.toString());
-            } catch (Exception e) {
-                log.warn("Erro ao converter data: {}", obj);
-            }
+        PedidoResponseDTO pedido = evento.getPedido();
+        if (evento.getTipo() == null || pedido == null || pedido.getId() == null) {
+            log.warn("⚠️ Evento de journal incompleto ignorado: {}", evento);
+            return;
+        }
+        switch (evento.getTipo()) {
+            case PEDIDO_CRIADO, PEDIDO_PRONTO -> pedidoStore.salvar(pedido);
+            case PEDIDO_REMOVIDO -> pedidoStore.remover(pedido.getId());
+            default -> log.warn("⚠️ Evento {} não é reaplicável a partir do journal", evento.getTipo());
         }
-        return null;
     }
 
     /**
-     * Atualiza o cache de pedidos com a lista fornecida
+     * O banco H2 é em memória e recomeça vazio a cada execução, enquanto o cache sobrevive
+     * ao restart; os ids novos continuam depois do maior entre os dois.
      */
-    private void atualizarCachePedidos(List<PedidoResponseDTO> pedidos) {
+    private long maiorIdNoBanco() {
         try {
-            if (pedidos == null) {
-                log.warn("⚠️ Tentando salvar cache com lista null, ignorando...");
-                return;
-            }
-            log.debug("Atualizando cache com {} pedidos", pedidos.size());
-            cacheService.salvarCachePedidos(pedidos);
-        } catch (Exception e) {
-            // Log do erro mas não interrompe a operação principal
-            log.warn("Erro ao salvar cache de pedidos: {}", e.getMessage(), e);
+            Long maiorIdBanco = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM pedidos", Long.class);
+            return maiorIdBanco != null ? maiorIdBanco : 0L;
+        } catch (DataAccessException e) {
+            log.warn("Não foi possível consultar o maior id de pedidos no banco: {}", e.getMessage());
+            return 0L;
         }
     }
 }
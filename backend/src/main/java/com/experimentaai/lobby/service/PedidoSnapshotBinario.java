@@ -0,0 +1,153 @@
+package com.experimentaai.lobby.service;
+
+import com.experimentaai.lobby.dto.PedidoResponseDTO;
+import com.experimentaai.lobby.entity.StatusPedido;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Formato binário do snapshot de pedidos (pedidos.bin).
+ *
+ * Layout (big-endian):
+ *   cabeçalho: "LPED" (4 bytes), versão do formato (2 bytes), quantidade de pedidos (4 bytes)
+ *   por pedido: id (8), status (1, ordinal de StatusPedido), dataCriacao (8 + 4),
+ *               dataAtualizacao (8 + 4), nome (4 bytes de tamanho + UTF-8; 2 bytes na versão 1)
+ *   rodapé: CRC32C (4 bytes) de tudo o que vem antes
+ *
+ * Datas são gravadas como segundos e nanos desde a época (UTC), sem perda de precisão.
+ * Valores nulos usam marcadores: Long.MIN_VALUE no id/segundos, -1 no status, -1 no tamanho do nome
+ * (0xFFFF na versão 1). Mudanças de layout (inclusive na ordem do enum StatusPedido) exigem nova
+ * versão do formato; a versão 1 continua sendo lida.
+ */
+public final class PedidoSnapshotBinario {
+
+    private static final int MAGICO = 0x4C504544; // "LPED"
+    private static final short VERSAO_FORMATO = 2;
+    private static final short VERSAO_NOME_CURTO = 1;
+    private static final int TAMANHO_CABECALHO = 4 + 2 + 4;
+    private static final int TAMANHO_FIXO_PEDIDO = 8 + 1 + 12 + 12 + 4;
+    private static final int TAMANHO_FIXO_PEDIDO_NOME_CURTO = 8 + 1 + 12 + 12 + 2;
+    private static final int TAMANHO_CHECKSUM = 4;
+    private static final int NOME_NULO = -1;
+    private static final int NOME_NULO_CURTO = 0xFFFF;
+    private static final StatusPedido[] STATUS = StatusPedido.values();
+
+    private PedidoSnapshotBinario() {
+    }
+
+    public static byte[] codificar(List<PedidoResponseDTO> pedidos) {
+        byte[][] nomes = new byte[pedidos.size()][];
+        int tamanho = TAMANHO_CABECALHO + TAMANHO_CHECKSUM;
+        for (int i = 0; i < pedidos.size(); i++) {
+            String nome = pedidos.get(i).getNomeCliente();
+            nomes[i] = nome != null ? nome.getBytes(StandardCharsets.UTF_8) : null;
+            tamanho += TAMANHO_FIXO_PEDIDO + (nomes[i] != null ? nomes[i].length : 0);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(tamanho);
+        buffer.putInt(MAGICO).putShort(VERSAO_FORMATO).putInt(pedidos.size());
+        for (int i = 0; i < pedidos.size(); i++) {
+            PedidoResponseDTO pedido = pedidos.get(i);
+            buffer.putLong(pedido.getId() != null ? pedido.getId() : Long.MIN_VALUE);
+            buffer.put((byte) (pedido.getStatus() != null ? pedido.getStatus().ordinal() : -1));
+            escreverData(buffer, pedido.getDataCriacao());
+            escreverData(buffer, pedido.getDataAtualizacao());
+            if (nomes[i] == null) {
+                buffer.putInt(NOME_NULO);
+            } else {
+                buffer.putInt(nomes[i].length).put(nomes[i]);
+            }
+        }
+        buffer.putInt(checksum(buffer.array(), buffer.position()));
+        return buffer.array();
+    }
+
+    /**
+     * Decodifica o snapshot, validando cabeçalho, versão e checksum.
+     * Lança IOException se o conteúdo estiver corrompido ou truncado.
+     */
+    public static List<PedidoResponseDTO> decodificar(byte[] conteudo) throws IOException {
+        if (conteudo.length < TAMANHO_CABECALHO + TAMANHO_CHECKSUM) {
+            throw new IOException("Snapshot binário truncado (" + conteudo.length + " bytes)");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(conteudo);
+        if (buffer.getInt() != MAGICO) {
+            throw new IOException("Arquivo não é um snapshot binário de pedidos");
+        }
+        short versao = buffer.getShort();
+        if (versao != VERSAO_FORMATO && versao != VERSAO_NOME_CURTO) {
+            throw new IOException("Versão " + versao + " do snapshot binário não suportada");
+        }
+        boolean nomeCurto = versao == VERSAO_NOME_CURTO;
+        int fimDados = conteudo.length - TAMANHO_CHECKSUM;
+        int esperado = ByteBuffer.wrap(conteudo, fimDados, TAMANHO_CHECKSUM).getInt();
+        if (checksum(conteudo, fimDados) != esperado) {
+            throw new IOException("Checksum do snapshot binário não confere");
+        }
+
+        int quantidade = buffer.getInt();
+        int tamanhoFixo = nomeCurto ? TAMANHO_FIXO_PEDIDO_NOME_CURTO : TAMANHO_FIXO_PEDIDO;
+        if (quantidade < 0 || (long) quantidade * tamanhoFixo > fimDados - TAMANHO_CABECALHO) {
+            throw new IOException("Quantidade de pedidos inválida no snapshot binário: " + quantidade);
+        }
+        List<PedidoResponseDTO> pedidos = new ArrayList<>(quantidade);
+        try {
+            for (int i = 0; i < quantidade; i++) {
+                long id = buffer.getLong();
+                int status = buffer.get();
+                LocalDateTime dataCriacao = lerData(buffer);
+                LocalDateTime dataAtualizacao = lerData(buffer);
+                int tamanhoNome = nomeCurto ? Short.toUnsignedInt(buffer.getShort()) : buffer.getInt();
+                String nome = null;
+                if (tamanhoNome != (nomeCurto ? NOME_NULO_CURTO : NOME_NULO)) {
+                    nome = new String(conteudo, buffer.position(), tamanhoNome, StandardCharsets.UTF_8);
+                    buffer.position(buffer.position() + tamanhoNome);
+                }
+                if (status >= STATUS.length) {
+                    throw new IOException("Status " + status + " inválido no pedido " + id);
+                }
+                pedidos.add(PedidoResponseDTO.builder()
+                        .id(id != Long.MIN_VALUE ? id : null)
+                        .nomeCliente(nome)
+                        .status(status >= 0 ? STATUS[status] : null)
+                        .dataCriacao(dataCriacao)
+                        .dataAtualizacao(dataAtualizacao)
+                        .build());
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Snapshot binário inconsistente: " + e.getMessage(), e);
+        }
+        if (buffer.position() != fimDados) {
+            throw new IOException("Snapshot binário com " + (fimDados - buffer.position()) + " bytes sobrando");
+        }
+        return pedidos;
+    }
+
+    private static void escreverData(ByteBuffer buffer, LocalDateTime data) {
+        if (data == null) {
+            buffer.putLong(Long.MIN_VALUE).putInt(0);
+            return;
+        }
+        buffer.putLong(data.toEpochSecond(ZoneOffset.UTC)).putInt(data.getNano());
+    }
+
+    private static LocalDateTime lerData(ByteBuffer buffer) {
+        long segundos = buffer.getLong();
+        int nanos = buffer.getInt();
+        return segundos != Long.MIN_VALUE ? LocalDateTime.ofEpochSecond(segundos, nanos, ZoneOffset.UTC) : null;
+    }
+
+    private static int checksum(byte[] conteudo, int tamanho) {
+        CRC32C crc = new CRC32C();
+        crc.update(conteudo, 0, tamanho);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,86 @@
+package com.experimentaai.lobby.service;
+
+import com.experimentaai.lobby.dto.PedidoEventoDTO;
+import com.experimentaai.lobby.mapper.PedidoJsonCodec;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Mantém a lista de pedidos serializada uma única vez por versão do store.
+ * O mesmo array de bytes atende todos os GET /api/cache/pedidos e todos os
+ * eventos de snapshot SSE até a próxima mutação.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PedidoSnapshotCache {
+
+    /**
+     * JSON (array) da lista de pedidos de uma versão. O array nunca deve ser modificado.
+     */
+    public record SnapshotSerializado(long versao, byte[] pedidosJson) {
+    }
+
+    private final PedidoStore pedidoStore;
+    private final PedidoJsonCodec pedidoJsonCodec;
+
+    private volatile SnapshotSerializado atual;
+
+    public SnapshotSerializado obter() {
+        SnapshotSerializado cache = atual;
+        if (cache != null && cache.versao() == pedidoStore.getVersao()) {
+            return cache;
+        }
+        synchronized (this) {
+            cache = atual;
+            if (cache != null && cache.versao() == pedidoStore.getVersao()) {
+                return cache;
+            }
+            PedidoStore.Snapshot snapshot = pedidoStore.snapshot();
+            cache = new SnapshotSerializado(snapshot.versao(), pedidoJsonCodec.escreverLista(snapshot.pedidos()));
+            atual = cache;
+            log.debug("🧊 Snapshot de pedidos serializado (versão {}, {} bytes)", cache.versao(), cache.pedidosJson().length);
+            return cache;
+        }
+    }
+
+    /**
+     * Monta o evento PEDIDOS_SNAPSHOT reaproveitando os bytes da lista já serializada.
+     */
+    public PedidoEventoSerializado obterEvento() {
+        SnapshotSerializado snapshot = obter();
+        long timestamp = System.currentTimeMillis();
+        byte[] json = envolver("{\"tipo\":\"" + PedidoEventoDTO.Tipo.PEDIDOS_SNAPSHOT
+                + "\",\"versao\":" + snapshot.versao()
+                + ",\"timestamp\":" + timestamp
+                + ",\"pedidos\":", snapshot);
+        PedidoEventoDTO evento = PedidoEventoDTO.builder()
+                .tipo(PedidoEventoDTO.Tipo.PEDIDOS_SNAPSHOT)
+                .versao(snapshot.versao())
+                .timestamp(timestamp)
+                .build();
+        return new PedidoEventoSerializado(evento, json);
+    }
+
+    /**
+     * Monta a resposta de /api/cache/pedidos/status com mudanças, reaproveitando os bytes da lista.
+     * A época acompanha a versão porque as versões recomeçam a cada execução do servidor.
+     */
+    public byte[] obterStatus(SnapshotSerializado snapshot, String epoca) {
+        return envolver("{\"houveMudancas\":true,\"primeiraCarga\":false,\"epoca\":\"" + epoca
+                + "\",\"versao\":" + snapshot.versao() + ",\"dados\":", snapshot);
+    }
+
+    private static byte[] envolver(String prefixo, SnapshotSerializado snapshot) {
+        byte[] inicio = prefixo.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream json = new ByteArrayOutputStream(inicio.length + snapshot.pedidosJson().length + 1);
+        json.writeBytes(inicio);
+        json.writeBytes(snapshot.pedidosJson());
+        json.write('}');
+        return json.toByteArray();
+    }
+}
@@ -0,0 +1,330 @@
+package com.experimentaai.lobby.service;
+
+import com.experimentaai.lobby.dto.PedidoResponseDTO;
+import com.experimentaai.lobby.entity.StatusPedido;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * Armazenamento residente (em memória) dos pedidos ativos.
+ * É a fonte de verdade para leituras e mutações; o arquivo de cache passa a ser
+ * apenas o destino de durabilidade, lido uma única vez na inicialização.
+ *
+ * Leituras não usam lock (índices concorrentes). Mutações vêm de um único escritor
+ * (o PedidoSequenciador) e ainda passam por um StampedLock, para que snapshot() detecte
+ * uma mutação no meio da leitura sem bloquear o escritor.
+ * Os índices (por id, por ordem de criação e por status) ficam sempre coerentes entre si.
+ * Mudanças de status usam troca condicional (substituirSeInalterado): quem calculou o novo
+ * estado a partir de uma leitura desatualizada relê, em vez de sobrescrever outra mudança.
+ * O índice por status também é ordenado por criação, então listar um status custa
+ * O(k) para k pedidos nesse status.
+ * Cada mutação incrementa a versão do conjunto de pedidos.
+ */
+@Slf4j
+@Component
+public class PedidoStore {
+
+    /**
+     * Chave de ordenação: data de criação e, em caso de empate, id.
+     */
+    private record ChaveOrdem(LocalDateTime dataCriacao, long id) {
+    }
+
+    /**
+     * Lista de pedidos junto com a versão a que ela corresponde.
+     */
+    public record Snapshot(long versao, List<PedidoResponseDTO> pedidos) {
+    }
+
+    private static final Comparator<ChaveOrdem> ORDEM_CRIACAO = Comparator
+            .comparing(ChaveOrdem::dataCriacao, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparingLong(ChaveOrdem::id);
+
+    private final Map<Long, PedidoResponseDTO> pedidosPorId = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<ChaveOrdem, PedidoResponseDTO> pedidosPorCriacao =
+            new ConcurrentSkipListMap<>(ORDEM_CRIACAO);
+    private final Map<StatusPedido, ConcurrentSkipListMap<ChaveOrdem, PedidoResponseDTO>> pedidosPorStatus =
+            criarIndicePorStatus();
+    private final StampedLock lockEscrita = new StampedLock();
+    // Thread que está dentro de atomicamente(); suas mutações reaproveitam o lock já adquirido
+    private volatile Thread donoLote;
+    private final AtomicLong versao = new AtomicLong();
+
+    /**
+     * Substitui todo o conteúdo do store (carga inicial ou restauração do cache).
+     */
+    public void carregar(List<PedidoResponseDTO> pedidos) {
+        long carimbo = travarEscrita();
+        try {
+            pedidosPorId.clear();
+            pedidosPorCriacao.clear();
+            pedidosPorStatus.values().forEach(Map::clear);
+            for (PedidoResponseDTO pedido : pedidos) {
+                if (pedido == null || pedido.getId() == null) {
+                    continue;
+                }
+                PedidoResponseDTO copia = copiar(pedido);
+                PedidoResponseDTO anterior = pedidosPorId.put(copia.getId(), copia);
+                if (anterior != null) {
+                    desindexar(anterior);
+                }
+                indexar(copia);
+            }
+            versao.incrementAndGet();
+            log.info("📦 Store de pedidos carregado com {} pedidos", pedidosPorId.size());
+        } finally {
+            destravarEscrita(carimbo);
+        }
+    }
+
+    public PedidoResponseDTO adicionar(PedidoResponseDTO pedido) {
+        PedidoResponseDTO anterior = salvar(pedido);
+        if (anterior != null) {
+            log.warn("⚠️ Pedido {} já existia no store e foi substituído", pedido.getId());
+        }
+        return copiar(pedido);
+    }
+
+    /**
+     * Insere ou substitui o pedido pelo estado recebido (usado na reaplicação do journal).
+     * Retorna o estado anterior, ou null se o pedido não existia.
+     */
+    public PedidoResponseDTO salvar(PedidoResponseDTO pedido) {
+        if (pedido == null || pedido.getId() == null) {
+            throw new IllegalArgumentException("Pedido sem id não pode ser adicionado ao store");
+        }
+        PedidoResponseDTO copia = copiar(pedido);
+        long carimbo = travarEscrita();
+        try {
+            PedidoResponseDTO anterior = pedidosPorId.put(copia.getId(), copia);
+            if (anterior != null) {
+                desindexar(anterior);
+            }
+            indexar(copia);
+            versao.incrementAndGet();
+            return anterior;
+        } finally {
+            destravarEscrita(carimbo);
+        }
+    }
+
+    /**
+     * Substitui o pedido pelo novo estado somente se o estado atual ainda for o esperado
+     * (o lido antes de calcular a mudança). Retorna false se o pedido mudou ou foi removido
+     * nesse meio tempo, para que o chamador releia em vez de sobrescrever a outra mudança.
+     */
+    public boolean substituirSeInalterado(PedidoResponseDTO esperado, PedidoResponseDTO novo) {
+        if (novo == null || novo.getId() == null || !novo.getId().equals(esperado.getId())) {
+            throw new IllegalArgumentException("Novo estado deve ter o mesmo id do pedido esperado");
+        }
+        PedidoResponseDTO copia = copiar(novo);
+        long carimbo = travarEscrita();
+        try {
+            PedidoResponseDTO atual = pedidosPorId.get(copia.getId());
+            if (atual == null || !atual.equals(esperado)) {
+                return false;
+            }
+            pedidosPorId.put(copia.getId(), copia);
+            desindexar(atual);
+            indexar(copia);
+            versao.incrementAndGet();
+            return true;
+        } finally {
+            destravarEscrita(carimbo);
+        }
+    }
+
+    /**
+     * Remove o pedido. Retorna vazio se o pedido não existir.
+     */
+    public Optional<PedidoResponseDTO> remover(Long id) {
+        long carimbo = travarEscrita();
+        try {
+            PedidoResponseDTO removido = pedidosPorId.remove(id);
+            if (removido == null) {
+                return Optional.empty();
+            }
+            desindexar(removido);
+            versao.incrementAndGet();
+            return Optional.of(removido);
+        } finally {
+            destravarEscrita(carimbo);
+        }
+    }
+
+    /**
+     * Atualiza posição na fila e previsão dos pedidos informados sem mudar a versão: são dados
+     * derivados da mutação que os alterou, então devem ser gravados dentro de atomicamente(),
+     * junto com ela. Pedidos que não existem mais são ignorados.
+     */
+    public void atualizarPrevisoes(List<PedidoResponseDTO> pedidos) {
+        long carimbo = travarEscrita();
+        try {
+            for (PedidoResponseDTO pedido : pedidos) {
+                PedidoResponseDTO atual = pedidosPorId.get(pedido.getId());
+                if (atual == null) {
+                    continue;
+                }
+                PedidoResponseDTO copia = copiar(atual);
+                copia.setPosicaoFila(pedido.getPosicaoFila());
+                copia.setPrevisaoPronto(pedido.getPrevisaoPronto());
+                pedidosPorId.put(copia.getId(), copia);
+                indexar(copia);
+            }
+        } finally {
+            destravarEscrita(carimbo);
+        }
+    }
+
+    /**
+     * Executa várias mutações como uma só para os leitores: snapshot() vê todas ou nenhuma.
+     * Cada mutação ainda incrementa a versão. As mutações não devem chamar snapshot().
+     */
+    public <T> T atomicamente(Supplier<T> mutacoes) {
+        if (donoLote == Thread.currentThread()) {
+            return mutacoes.get();
+        }
+        long carimbo = lockEscrita.writeLock();
+        donoLote = Thread.currentThread();
+        try {
+            return mutacoes.get();
+        } finally {
+            donoLote = null;
+            lockEscrita.unlockWrite(carimbo);
+        }
+    }
+
+    public Optional<PedidoResponseDTO> buscarPorId(Long id) {
+        PedidoResponseDTO pedido = id != null ? pedidosPorId.get(id) : null;
+        return Optional.ofNullable(pedido).map(PedidoStore::copiar);
+    }
+
+    /**
+     * Lista os pedidos ativos em ordem de criação.
+     */
+    public List<PedidoResponseDTO> listar() {
+        List<PedidoResponseDTO> pedidos = new ArrayList<>(pedidosPorCriacao.size());
+        for (PedidoResponseDTO pedido : pedidosPorCriacao.values()) {
+            pedidos.add(copiar(pedido));
+        }
+        return pedidos;
+    }
+
+    /**
+     * Lista os pedidos de um status em ordem de criação, direto do índice por status.
+     */
+    public List<PedidoResponseDTO> listarPorStatus(StatusPedido status) {
+        ConcurrentSkipListMap<ChaveOrdem, PedidoResponseDTO> indice = pedidosPorStatus.get(status);
+        if (indice == null) {
+            return Collections.emptyList();
+        }
+        List<PedidoResponseDTO> pedidos = new ArrayList<>();
+        for (PedidoResponseDTO pedido : indice.values()) {
+            pedidos.add(copiar(pedido));
+        }
+        return pedidos;
+    }
+
+    public int tamanhoPorStatus(StatusPedido status) {
+        ConcurrentSkipListMap<ChaveOrdem, PedidoResponseDTO> indice = pedidosPorStatus.get(status);
+        return indice != null ? indice.size() : 0;
+    }
+
+    /**
+     * Lista os pedidos e a versão correspondente de forma consistente (sem mutação no meio).
+     */
+    public Snapshot snapshot() {
+        // Leitura otimista: não bloqueia o escritor; só recorre ao lock se houve mutação no meio
+        long carimbo = lockEscrita.tryOptimisticRead();
+        if (carimbo != 0) {
+            Snapshot snapshot = new Snapshot(versao.get(), listar());
+            if (lockEscrita.validate(carimbo)) {
+                return snapshot;
+            }
+        }
+        carimbo = lockEscrita.readLock();
+        try {
+            return new Snapshot(versao.get(), listar());
+        } finally {
+            lockEscrita.unlockRead(carimbo);
+        }
+    }
+
+    /**
+     * Versão atual do conjunto de pedidos; muda a cada mutação.
+     */
+    public long getVersao() {
+        return versao.get();
+    }
+
+    public int tamanho() {
+        return pedidosPorId.size();
+    }
+
+    public long maiorId() {
+        return pedidosPorId.keySet().stream().mapToLong(Long::longValue).max().orElse(0L);
+    }
+
+    // 0 quando a thread já está dentro de atomicamente() e não deve travar de novo
+    private long travarEscrita() {
+        return donoLote == Thread.currentThread() ? 0 : lockEscrita.writeLock();
+    }
+
+    private void destravarEscrita(long carimbo) {
+        if (carimbo != 0) {
+            lockEscrita.unlockWrite(carimbo);
+        }
+    }
+
+    private void indexar(PedidoResponseDTO pedido) {
+        pedidosPorCriacao.put(chave(pedido), pedido);
+        if (pedido.getStatus() != null) {
+            pedidosPorStatus.get(pedido.getStatus()).put(chave(pedido), pedido);
+        }
+    }
+
+    private void desindexar(PedidoResponseDTO pedido) {
+        pedidosPorCriacao.remove(chave(pedido));
+        if (pedido.getStatus() != null) {
+            pedidosPorStatus.get(pedido.getStatus()).remove(chave(pedido));
+        }
+    }
+
+    private static Map<StatusPedido, ConcurrentSkipListMap<ChaveOrdem, PedidoResponseDTO>> criarIndicePorStatus() {
+        Map<StatusPedido, ConcurrentSkipListMap<ChaveOrdem, PedidoResponseDTO>> indice = new EnumMap<>(StatusPedido.class);
+        for (StatusPedido status : StatusPedido.values()) {
+            indice.put(status, new ConcurrentSkipListMap<>(ORDEM_CRIACAO));
+        }
+        return indice;
+    }
+
+    private static ChaveOrdem chave(PedidoResponseDTO pedido) {
+        return new ChaveOrdem(pedido.getDataCriacao(), pedido.getId());
+    }
+
+    private static PedidoResponseDTO copiar(PedidoResponseDTO pedido) {
+        return PedidoResponseDTO.builder()
+                .id(pedido.getId())
+                .nomeCliente(pedido.getNomeCliente())
+                .status(pedido.getStatus())
+                .dataCriacao(pedido.getDataCriacao())
+                .dataAtualizacao(pedido.getDataAtualizacao())
+                .posicaoFila(pedido.getPosicaoFila())
+                .previsaoPronto(pedido.getPrevisaoPronto())
+                .build();
+    }
+}
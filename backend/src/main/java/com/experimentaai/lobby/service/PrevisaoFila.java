@@ -0,0 +1,216 @@
+package com.experimentaai.lobby.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fila dos pedidos em preparo (ordem de criação) e estimativas móveis para prever quando cada um
+ * fica pronto: tempo de preparo e intervalo entre pedidos prontos, ambos por média móvel
+ * exponencial atualizada a cada pedido pronto (O(1)).
+ *
+ * Previsão de um pedido na posição p: o mais tarde entre (criação + tempo de preparo) e
+ * (agora + p × intervalo entre prontos). Quando um pedido sai da fila, só os que estavam atrás
+ * dele mudam de posição; idsAlterados() devolve exatamente esses, para recalcular só eles.
+ *
+ * Cada pedido ocupa um slot na ordem de entrada; sair() só esvazia o slot, e a posição é a
+ * quantidade de slots ocupados até ele, contada numa árvore de Fenwick (O(log n)). Os slots
+ * vazios são compactados quando passam do número de pedidos na fila (custo amortizado O(1)).
+ *
+ * Não é thread-safe: deve ser usada pela thread do sequenciador de pedidos.
+ */
+public class PrevisaoFila {
+
+    // Peso da amostra mais recente nas médias móveis
+    private static final double SUAVIZACAO = 0.2;
+    private static final int CAPACIDADE_INICIAL = 16;
+
+    private final Map<Long, Integer> slots = new HashMap<>();
+    // Id em cada slot, null depois que o pedido sai
+    private Long[] ids = new Long[CAPACIDADE_INICIAL];
+    // Árvore de Fenwick (base 1) com 1 em cada slot ocupado
+    private int[] ocupados = new int[CAPACIDADE_INICIAL + 1];
+    private int proximoSlot;
+    private int tamanho;
+    private double tempoPreparoMs;
+    private double intervaloEntreProntosMs;
+    private long ultimoProntoMs = -1;
+    // Primeiro slot a partir do qual as posições mudaram desde o último idsAlterados(); -1 se nenhum
+    private int primeiroAlterado = -1;
+
+    public PrevisaoFila(long tempoPreparoInicialMs, long intervaloInicialMs) {
+        this.tempoPreparoMs = Math.max(0, tempoPreparoInicialMs);
+        this.intervaloEntreProntosMs = Math.max(0, intervaloInicialMs);
+    }
+
+    /**
+     * Coloca o pedido no fim da fila e devolve a posição dele (1 = próximo).
+     */
+    public int entrar(Long id) {
+        Integer existente = slots.get(id);
+        if (existente != null) {
+            return contarAte(existente);
+        }
+        if (proximoSlot == ids.length) {
+            reorganizar(Math.max(CAPACIDADE_INICIAL, tamanho * 2));
+        }
+        int slot = proximoSlot++;
+        ids[slot] = id;
+        slots.put(id, slot);
+        somar(slot, 1);
+        tamanho++;
+        return tamanho;
+    }
+
+    /**
+     * Tira o pedido da fila; os pedidos atrás dele passam a constar em idsAlterados().
+     */
+    public void sair(Long id) {
+        Integer slot = slots.remove(id);
+        if (slot == null) {
+            return;
+        }
+        ids[slot] = null;
+        somar(slot, -1);
+        tamanho--;
+        // Ainda há pedidos atrás dele se os anteriores não são a fila toda
+        if (contarAte(slot) < tamanho) {
+            primeiroAlterado = primeiroAlterado < 0 ? slot : Math.min(primeiroAlterado, slot);
+        }
+        if (proximoSlot - tamanho > Math.max(tamanho, CAPACIDADE_INICIAL)) {
+            reorganizar(ids.length);
+        }
+    }
+
+    /**
+     * Substitui a fila inteira (carga inicial ou restauração); todos passam a constar em idsAlterados().
+     */
+    public void reconstruir(List<Long> novos) {
+        slots.clear();
+        int capacidade = Math.max(CAPACIDADE_INICIAL, novos.size() * 2);
+        ids = new Long[capacidade];
+        ocupados = new int[capacidade + 1];
+        proximoSlot = 0;
+        tamanho = 0;
+        primeiroAlterado = -1;
+        for (Long id : novos) {
+            entrar(id);
+        }
+        if (tamanho > 0) {
+            primeiroAlterado = 0;
+        }
+    }
+
+    /**
+     * Pedidos cuja posição mudou desde a última chamada, em ordem de fila.
+     */
+    public List<Long> idsAlterados() {
+        if (primeiroAlterado < 0) {
+            return List.of();
+        }
+        List<Long> alterados = new ArrayList<>();
+        for (int slot = primeiroAlterado; slot < proximoSlot; slot++) {
+            if (ids[slot] != null) {
+                alterados.add(ids[slot]);
+            }
+        }
+        primeiroAlterado = -1;
+        return alterados;
+    }
+
+    /**
+     * Posição do pedido (1 = próximo), ou 0 se ele não está na fila.
+     */
+    public int posicao(Long id) {
+        Integer slot = slots.get(id);
+        return slot != null ? contarAte(slot) : 0;
+    }
+
+    /**
+     * Atualiza as estimativas com um pedido que ficou pronto. O intervalo é contado desde o
+     * pronto anterior, ou desde a criação do pedido se a cozinha estava ociosa antes dele.
+     */
+    public void registrarPronto(long criadoEmMs, long prontoEmMs) {
+        tempoPreparoMs += SUAVIZACAO * (Math.max(0, prontoEmMs - criadoEmMs) - tempoPreparoMs);
+        if (ultimoProntoMs >= 0) {
+            long intervalo = Math.max(0, prontoEmMs - Math.max(ultimoProntoMs, criadoEmMs));
+            intervaloEntreProntosMs += SUAVIZACAO * (intervalo - intervaloEntreProntosMs);
+        }
+        ultimoProntoMs = Math.max(ultimoProntoMs, prontoEmMs);
+    }
+
+    /**
+     * Previsão (epoch millis) de quando o pedido na posição informada fica pronto.
+     */
+    public long prever(long criadoEmMs, int posicao, long agoraMs) {
+        long pelaCriacao = criadoEmMs + Math.round(tempoPreparoMs);
+        long pelaFila = agoraMs + Math.round(posicao * intervaloEntreProntosMs);
+        return Math.max(pelaCriacao, pelaFila);
+    }
+
+    public int tamanho() {
+        return tamanho;
+    }
+
+    public long getTempoPreparoMs() {
+        return Math.round(tempoPreparoMs);
+    }
+
+    public long getIntervaloEntreProntosMs() {
+        return Math.round(intervaloEntreProntosMs);
+    }
+
+    /**
+     * Slots ocupados de 0 até slot (inclusive).
+     */
+    private int contarAte(int slot) {
+        int soma = 0;
+        for (int i = slot + 1; i > 0; i -= i & -i) {
+            soma += ocupados[i];
+        }
+        return soma;
+    }
+
+    private void somar(int slot, int valor) {
+        for (int i = slot + 1; i < ocupados.length; i += i & -i) {
+            ocupados[i] += valor;
+        }
+    }
+
+    /**
+     * Move os pedidos para slots contíguos num vetor de capacidade dada e reconstrói a árvore
+     * em O(capacidade), preservando a ordem e o primeiro slot alterado.
+     */
+    private void reorganizar(int capacidade) {
+        Long[] novosIds = new Long[capacidade];
+        int[] novosOcupados = new int[capacidade + 1];
+        int novoPrimeiroAlterado = -1;
+        int destino = 0;
+        for (int slot = 0; slot < proximoSlot; slot++) {
+            if (slot == primeiroAlterado) {
+                novoPrimeiroAlterado = destino;
+            }
+            Long id = ids[slot];
+            if (id == null) {
+                continue;
+            }
+            novosIds[destino] = id;
+            slots.put(id, destino);
+            destino++;
+        }
+        for (int i = 1; i <= capacidade; i++) {
+            if (i <= destino) {
+                novosOcupados[i]++;
+            }
+            int pai = i + (i & -i);
+            if (pai <= capacidade) {
+                novosOcupados[pai] += novosOcupados[i];
+            }
+        }
+        ids = novosIds;
+        ocupados = novosOcupados;
+        proximoSlot = destino;
+        primeiroAlterado = novoPrimeiroAlterado;
+    }
+}
@@ -0,0 +1,102 @@
+package com.experimentaai.lobby.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Roda de temporização com hash (hashed timer wheel): prazos de muitas chaves com custo O(1)
+ * para agendar e cancelar, sem uma tarefa agendada por chave.
+ *
+ * O tempo é dividido em ticks e cada prazo cai na posição (tick do prazo) módulo o número de
+ * posições. A cada avanço só as posições dos ticks decorridos são examinadas; uma chave cujo
+ * prazo está mais de uma volta à frente fica na posição e é ignorada até a volta certa.
+ * Uma chave nunca expira antes do prazo (pode expirar até um tick depois).
+ *
+ * Não é thread-safe: deve ser usada por uma única thread (o sequenciador de pedidos).
+ */
+public class RodaTemporizadora<K> {
+
+    private final long tickMs;
+    private final List<Set<K>> posicoes;
+    private final int mascara;
+    private final Map<K, Long> ticksDoPrazo = new HashMap<>();
+    private long ultimoTick;
+
+    /**
+     * @param quantidadePosicoes arredondada para potência de 2
+     */
+    public RodaTemporizadora(long tickMs, int quantidadePosicoes, long agoraMs) {
+        this.tickMs = Math.max(1, tickMs);
+        int tamanho = Integer.highestOneBit(Math.max(1, Math.min(quantidadePosicoes, 1 << 16)) * 2 - 1);
+        this.posicoes = new ArrayList<>(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            posicoes.add(new HashSet<>());
+        }
+        this.mascara = tamanho - 1;
+        this.ultimoTick = agoraMs / this.tickMs;
+    }
+
+    /**
+     * Agenda (ou reagenda) a chave para expirar em prazoMs (epoch millis).
+     * Prazos já vencidos expiram no próximo avanço.
+     */
+    public void agendar(K chave, long prazoMs) {
+        cancelar(chave);
+        long tick = Math.max(Math.floorDiv(prazoMs + tickMs - 1, tickMs), ultimoTick + 1);
+        ticksDoPrazo.put(chave, tick);
+        posicao(tick).add(chave);
+    }
+
+    public boolean cancelar(K chave) {
+        Long tick = ticksDoPrazo.remove(chave);
+        if (tick == null) {
+            return false;
+        }
+        posicao(tick).remove(chave);
+        return true;
+    }
+
+    /**
+     * Avança a roda até agoraMs e devolve as chaves cujo prazo venceu (já removidas da roda).
+     */
+    public List<K> avancar(long agoraMs) {
+        long tickAtual = agoraMs / tickMs;
+        if (tickAtual <= ultimoTick) {
+            return List.of();
+        }
+        List<K> vencidas = new ArrayList<>();
+        // Depois de uma volta inteira sem avançar, cada posição precisa ser vista só uma vez
+        long passos = Math.min(tickAtual - ultimoTick, posicoes.size());
+        for (long tick = tickAtual - passos + 1; tick <= tickAtual; tick++) {
+            Iterator<K> chaves = posicao(tick).iterator();
+            while (chaves.hasNext()) {
+                K chave = chaves.next();
+                if (ticksDoPrazo.get(chave) <= tickAtual) {
+                    chaves.remove();
+                    ticksDoPrazo.remove(chave);
+                    vencidas.add(chave);
+                }
+            }
+        }
+        ultimoTick = tickAtual;
+        return vencidas;
+    }
+
+    public void limpar() {
+        ticksDoPrazo.clear();
+        posicoes.forEach(Set::clear);
+    }
+
+    public int tamanho() {
+        return ticksDoPrazo.size();
+    }
+
+    private Set<K> posicao(long tick) {
+        return posicoes.get((int) (tick & mascara));
+    }
+}
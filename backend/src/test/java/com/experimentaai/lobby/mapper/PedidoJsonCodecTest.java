@@ -0,0 +1,143 @@
+package com.experimentaai.lobby.mapper;
+
+import com.experimentaai.lobby.config.JacksonConfig;
+import com.experimentaai.lobby.dto.PedidoEventoDTO;
+import com.experimentaai.lobby.dto.PedidoResponseDTO;
+import com.experimentaai.lobby.entity.StatusPedido;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PedidoJsonCodecTest {
+
+    private static final LocalDateTime CRIACAO = LocalDateTime.of(2026, 10, 17, 10, 15, 30, 123_000_000);
+
+    private final ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+    private final PedidoJsonCodec codec = new PedidoJsonCodec(objectMapper);
+
+    private final List<PedidoResponseDTO> pedidos = List.of(
+            pedido(1L, "Ana", StatusPedido.PREPARANDO, CRIACAO, CRIACAO, 1, CRIACAO.plusMinutes(5)),
+            pedido(2L, "João \"Ñandú\" 🍔", StatusPedido.PRONTO, CRIACAO, CRIACAO.plusMinutes(7), null, null),
+            pedido(3L, null, null, null, null, null, null));
+
+    @Test
+    void listaEscritaPeloCodecEhIgualADoObjectMapper() throws IOException {
+        assertThat(objectMapper.readTree(codec.escreverLista(pedidos)))
+                .isEqualTo(objectMapper.readTree(objectMapper.writeValueAsBytes(pedidos)));
+        assertThat(objectMapper.readTree(codec.escreverListaIndentada(pedidos)))
+                .isEqualTo(objectMapper.readTree(objectMapper.writeValueAsBytes(pedidos)));
+    }
+
+    @Test
+    void leListaEscritaPeloObjectMapperEPeloCodec() throws IOException {
+        assertThat(codec.lerLista(objectMapper.writeValueAsBytes(pedidos))).isEqualTo(pedidos);
+        assertThat(codec.lerLista(codec.escreverLista(pedidos))).isEqualTo(pedidos);
+        assertThat(objectMapper.readValue(codec.escreverLista(pedidos), new TypeReference<List<PedidoResponseDTO>>() {
+        })).isEqualTo(pedidos);
+    }
+
+    @Test
+    void eventoEscritoPeloCodecEhIgualAoDoObjectMapper() throws IOException {
+        PedidoEventoDTO evento = lote();
+
+        assertThat(objectMapper.readTree(codec.escreverEvento(evento)))
+                .isEqualTo(objectMapper.readTree(objectMapper.writeValueAsBytes(evento)));
+    }
+
+    @Test
+    void leEventoEscritoPeloObjectMapperEPeloCodec() throws IOException {
+        PedidoEventoDTO evento = lote();
+
+        assertThat(codec.lerEvento(objectMapper.writeValueAsBytes(evento))).isEqualTo(evento);
+        assertThat(codec.lerEvento(codec.escreverEvento(evento))).isEqualTo(evento);
+        assertThat(objectMapper.readValue(codec.escreverEvento(evento), PedidoEventoDTO.class)).isEqualTo(evento);
+    }
+
+    @Test
+    void leEventoDeUmTrechoDoArray() throws IOException {
+        PedidoEventoDTO evento = delta(PedidoEventoDTO.Tipo.PEDIDO_REMOVIDO, 9, pedidos.get(1));
+        byte[] json = codec.escreverEvento(evento);
+        byte[] linhas = new byte[json.length + 4];
+        System.arraycopy(json, 0, linhas, 2, json.length);
+
+        assertThat(codec.lerEvento(linhas, 2, json.length)).isEqualTo(evento);
+    }
+
+    @Test
+    void aceitaIdComoTextoEIgnoraCamposDesconhecidos() throws IOException {
+        String json = "[{\"id\":\"42\",\"extra\":{\"a\":[1,2]},\"nomeCliente\":\"Ana\",\"status\":\"PRONTO\"},null]";
+
+        assertThat(codec.lerLista(json.getBytes(StandardCharsets.UTF_8)))
+                .containsExactly(pedido(42L, "Ana", StatusPedido.PRONTO, null, null, null, null));
+    }
+
+    @Test
+    void recusaConteudoQueNaoEhUmaListaDePedidosValida() {
+        assertThatThrownBy(() -> ler("{\"id\":1}")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> ler("[1]")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> ler("[] []")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> ler("[{\"id\":1")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> ler("[{\"id\":\"um\"}]")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> ler("[{\"status\":\"CANCELADO\"}]")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> ler("[{\"dataCriacao\":\"ontem\"}]")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> ler("[{\"dataCriacao\":1700000000}]")).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void recusaEventoMalformado() {
+        assertThatThrownBy(() -> codec.lerEvento("[]".getBytes(StandardCharsets.UTF_8)))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> codec.lerEvento("{\"tipo\":\"DESCONHECIDO\"}".getBytes(StandardCharsets.UTF_8)))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> codec.lerEvento("{\"pedido\":[]}".getBytes(StandardCharsets.UTF_8)))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> codec.lerEvento("{\"eventos\":[1]}".getBytes(StandardCharsets.UTF_8)))
+                .isInstanceOf(IOException.class);
+    }
+
+    private List<PedidoResponseDTO> ler(String json) throws IOException {
+        return codec.lerLista(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private PedidoEventoDTO lote() {
+        return PedidoEventoDTO.builder()
+                .tipo(PedidoEventoDTO.Tipo.PEDIDOS_LOTE)
+                .versao(12)
+                .eventos(List.of(
+                        delta(PedidoEventoDTO.Tipo.PEDIDO_CRIADO, 11, pedidos.get(0)),
+                        delta(PedidoEventoDTO.Tipo.PEDIDO_PRONTO, 12, pedidos.get(1))))
+                .pedidos(pedidos)
+                .timestamp(1_760_000_000_000L)
+                .build();
+    }
+
+    private static PedidoEventoDTO delta(PedidoEventoDTO.Tipo tipo, long versao, PedidoResponseDTO pedido) {
+        return PedidoEventoDTO.builder()
+                .tipo(tipo)
+                .versao(versao)
+                .pedido(pedido)
+                .timestamp(1_760_000_000_000L + versao)
+                .build();
+    }
+
+    private static PedidoResponseDTO pedido(Long id, String nome, StatusPedido status, LocalDateTime criacao,
+                                            LocalDateTime atualizacao, Integer posicao, LocalDateTime previsao) {
+        return PedidoResponseDTO.builder()
+                .id(id)
+                .nomeCliente(nome)
+                .status(status)
+                .dataCriacao(criacao)
+                .dataAtualizacao(atualizacao)
+                .posicaoFila(posicao)
+                .previsaoPronto(previsao)
+                .build();
+    }
+}
@@ -0,0 +1,141 @@
+package com.experimentaai.lobby.service;
+
+import com.experimentaai.lobby.dto.EstatisticasPreparoDTO;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.assertj.core.api.Assertions.withinPercentage;
+
+class EstatisticasPreparoTest {
+
+    private static final long MINUTO_MS = 60_000;
+    // Início de um minuto qualquer
+    private static final long AGORA = 29_000_000L * MINUTO_MS;
+
+    @Test
+    void semProntosOsTemposFicamNulos() {
+        EstatisticasPreparoDTO dto = new EstatisticasPreparo(60, 10).calcular(AGORA);
+
+        assertThat(dto.getProntos()).isZero();
+        assertThat(dto.getTempoPreparoMedioMs()).isNull();
+        assertThat(dto.getP50Ms()).isNull();
+        assertThat(dto.getP99Ms()).isNull();
+        assertThat(dto.getTempoPreparoMaximoMs()).isNull();
+        assertThat(dto.getProntosPorMinutoSerie()).hasSize(60).containsOnly(0L);
+    }
+
+    @Test
+    void calculaMediaMaximoEPercentisDentroDaPrecisaoDoHistograma() {
+        EstatisticasPreparo estatisticas = new EstatisticasPreparo(60, 10);
+        // Preparos de 1 s a 100 s, espalhados pelos últimos 50 minutos
+        for (int i = 1; i <= 100; i++) {
+            long pronto = AGORA - (i % 50) * MINUTO_MS;
+            estatisticas.registrarPronto(pronto - i * 1_000L, pronto);
+        }
+
+        EstatisticasPreparoDTO dto = estatisticas.calcular(AGORA);
+
+        assertThat(dto.getProntos()).isEqualTo(100);
+        assertThat(dto.getTempoPreparoMedioMs()).isEqualTo(50_500);
+        assertThat(dto.getTempoPreparoMaximoMs()).isEqualTo(100_000);
+        assertThat(dto.getP50Ms()).isCloseTo(50_000L, withinPercentage(10));
+        assertThat(dto.getP90Ms()).isCloseTo(90_000L, withinPercentage(10));
+        assertThat(dto.getP95Ms()).isCloseTo(95_000L, withinPercentage(10));
+        assertThat(dto.getP99Ms()).isCloseTo(99_000L, withinPercentage(10)).isLessThanOrEqualTo(100_000L);
+    }
+
+    @Test
+    void percentilNuncaPassaDoMaximoObservado() {
+        EstatisticasPreparo estatisticas = new EstatisticasPreparo(60, 10);
+        estatisticas.registrarPronto(AGORA - 1_000, AGORA);
+
+        EstatisticasPreparoDTO dto = estatisticas.calcular(AGORA);
+
+        assertThat(dto.getP50Ms()).isLessThanOrEqualTo(1_000L).isCloseTo(1_000L, withinPercentage(10));
+        assertThat(dto.getP99Ms()).isLessThanOrEqualTo(1_000L);
+    }
+
+    @Test
+    void preparoNegativoOuZeroContaComoZero() {
+        EstatisticasPreparo estatisticas = new EstatisticasPreparo(60, 10);
+        estatisticas.registrarPronto(AGORA + 5_000, AGORA);
+        estatisticas.registrarPronto(AGORA, AGORA);
+
+        EstatisticasPreparoDTO dto = estatisticas.calcular(AGORA);
+
+        assertThat(dto.getProntos()).isEqualTo(2);
+        assertThat(dto.getTempoPreparoMaximoMs()).isZero();
+        assertThat(dto.getP99Ms()).isZero();
+    }
+
+    @Test
+    void eventosForaDaJanelaSaoIgnorados() {
+        EstatisticasPreparo estatisticas = new EstatisticasPreparo(60, 10);
+        estatisticas.registrarPronto(AGORA - 61 * MINUTO_MS, AGORA - 60 * MINUTO_MS);
+        estatisticas.registrarPronto(AGORA - 2_000, AGORA - 1_000);
+
+        EstatisticasPreparoDTO dto = estatisticas.calcular(AGORA);
+
+        assertThat(dto.getProntos()).isEqualTo(1);
+        assertThat(dto.getTempoPreparoMaximoMs()).isEqualTo(1_000);
+    }
+
+    @Test
+    void posicaoDoAnelEhReaproveitadaQuandoDaAVolta() {
+        EstatisticasPreparo estatisticas = new EstatisticasPreparo(60, 10);
+        estatisticas.registrarPronto(AGORA - 60 * MINUTO_MS - 5_000, AGORA - 60 * MINUTO_MS);
+        // Mesmo índice do anel, uma volta depois: descarta o minuto antigo
+        estatisticas.registrarPronto(AGORA - 3_000, AGORA);
+        // Evento atrasado do minuto já substituído não volta a contar
+        estatisticas.registrarPronto(AGORA - 60 * MINUTO_MS - 9_000, AGORA - 60 * MINUTO_MS);
+
+        EstatisticasPreparoDTO dto = estatisticas.calcular(AGORA);
+
+        assertThat(dto.getProntos()).isEqualTo(1);
+        assertThat(dto.getTempoPreparoMaximoMs()).isEqualTo(3_000);
+    }
+
+    @Test
+    void vazaoContaOMinutoAtualPelaFracaoDecorrida() {
+        EstatisticasPreparo estatisticas = new EstatisticasPreparo(60, 10);
+        long agora = AGORA + 30_000;
+        for (int i = 0; i < 19; i++) {
+            estatisticas.registrarCriado(agora - i * 30_000L);
+        }
+        for (int i = 0; i < 38; i++) {
+            estatisticas.registrarPronto(agora - i * 15_000L - 1_000, agora - i * 15_000L);
+        }
+        // Fora da janela de vazão (10 min), mas dentro da janela de estatísticas
+        estatisticas.registrarCriado(agora - 20 * MINUTO_MS);
+
+        EstatisticasPreparoDTO dto = estatisticas.calcular(agora);
+
+        assertThat(dto.getJanelaVazaoMinutos()).isEqualTo(10);
+        assertThat(dto.getCriadosPorMinuto()).isCloseTo(19 / 9.5, within(1e-9));
+        assertThat(dto.getProntosPorMinuto()).isCloseTo(38 / 9.5, within(1e-9));
+    }
+
+    @Test
+    void serieTemUmValorPorMinutoDoMaisAntigoAoAtual() {
+        EstatisticasPreparo estatisticas = new EstatisticasPreparo(5, 5);
+        estatisticas.registrarPronto(AGORA - 4 * MINUTO_MS - 1_000, AGORA - 4 * MINUTO_MS);
+        estatisticas.registrarPronto(AGORA - 1_000, AGORA);
+        estatisticas.registrarPronto(AGORA + 1_000, AGORA + 2_000);
+
+        assertThat(estatisticas.calcular(AGORA + 2_000).getProntosPorMinutoSerie()).containsExactly(1L, 0L, 0L, 0L, 2L);
+    }
+
+    @Test
+    void limparZeraTudo() {
+        EstatisticasPreparo estatisticas = new EstatisticasPreparo(60, 10);
+        estatisticas.registrarCriado(AGORA);
+        estatisticas.registrarPronto(AGORA - 1_000, AGORA);
+        estatisticas.limpar();
+
+        EstatisticasPreparoDTO dto = estatisticas.calcular(AGORA);
+
+        assertThat(dto.getProntos()).isZero();
+        assertThat(dto.getCriadosPorMinuto()).isZero();
+    }
+}
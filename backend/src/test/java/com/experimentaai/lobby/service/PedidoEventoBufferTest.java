@@ -0,0 +1,103 @@
+package com.experimentaai.lobby.service;
+
+import com.experimentaai.lobby.dto.PedidoEventoDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PedidoEventoBufferTest {
+
+    @Test
+    void idDoEventoEhEpocaEVersao() {
+        PedidoEventoBuffer buffer = new PedidoEventoBuffer(8);
+
+        assertThat(buffer.idDaVersao(42)).isEqualTo(buffer.getEpoca() + "-42");
+        assertThat(buffer.idDoEvento(evento(7))).isEqualTo(buffer.getEpoca() + "-7");
+    }
+
+    @Test
+    void retomaComOsEventosPerdidos() {
+        PedidoEventoBuffer buffer = bufferComVersoes(8, 1, 5);
+
+        assertThat(versoes(buffer.eventosApos(buffer.idDaVersao(2), 5))).containsExactly(3L, 4L, 5L);
+    }
+
+    @Test
+    void clienteNaVersaoAtualNaoPerdeuNada() {
+        PedidoEventoBuffer buffer = bufferComVersoes(8, 1, 5);
+
+        assertThat(buffer.eventosApos(buffer.idDaVersao(5), 5)).contains(List.of());
+    }
+
+    @Test
+    void naoRetomaIdInvalidoOuDeOutraExecucao() {
+        PedidoEventoBuffer buffer = bufferComVersoes(8, 1, 5);
+
+        assertThat(buffer.eventosApos(null, 5)).isEmpty();
+        assertThat(buffer.eventosApos("", 5)).isEmpty();
+        assertThat(buffer.eventosApos("outraepoca-2", 5)).isEmpty();
+        assertThat(buffer.eventosApos(buffer.getEpoca() + "-abc", 5)).isEmpty();
+        assertThat(buffer.eventosApos(buffer.getEpoca() + "2", 5)).isEmpty();
+        // Versão à frente do servidor: o id só pode ser de outra execução
+        assertThat(buffer.eventosApos(buffer.idDaVersao(9), 5)).isEmpty();
+    }
+
+    @Test
+    void naoRetomaQuandoOPrimeiroEventoPerdidoJaSaiuDoBuffer() {
+        PedidoEventoBuffer buffer = bufferComVersoes(3, 1, 5);
+
+        assertThat(buffer.eventosApos(buffer.idDaVersao(1), 5)).isEmpty();
+        assertThat(versoes(buffer.eventosApos(buffer.idDaVersao(2), 5))).containsExactly(3L, 4L, 5L);
+    }
+
+    @Test
+    void loteRetomaPelaVersaoDoPrimeiroDelta() {
+        PedidoEventoBuffer buffer = bufferComVersoes(8, 1, 2);
+        buffer.registrar(new PedidoEventoSerializado(PedidoEventoDTO.builder()
+                .tipo(PedidoEventoDTO.Tipo.PEDIDOS_LOTE)
+                .versao(4)
+                .eventos(List.of(delta(3), delta(4)))
+                .build(), new byte[0]));
+
+        assertThat(versoes(buffer.eventosApos(buffer.idDaVersao(2), 4))).containsExactly(4L);
+        // O lote não pode ser entregue pela metade
+        assertThat(buffer.eventosApos(buffer.idDaVersao(3), 4)).isEmpty();
+    }
+
+    @Test
+    void limparDescartaOsEventos() {
+        PedidoEventoBuffer buffer = bufferComVersoes(8, 1, 5);
+        buffer.limpar();
+
+        assertThat(buffer.eventosApos(buffer.idDaVersao(2), 5)).isEmpty();
+        buffer.registrar(evento(6));
+        assertThat(versoes(buffer.eventosApos(buffer.idDaVersao(5), 6))).containsExactly(6L);
+    }
+
+    private static PedidoEventoBuffer bufferComVersoes(int capacidade, long primeira, long ultima) {
+        PedidoEventoBuffer buffer = new PedidoEventoBuffer(capacidade);
+        for (long versao = primeira; versao <= ultima; versao++) {
+            buffer.registrar(evento(versao));
+        }
+        return buffer;
+    }
+
+    private static PedidoEventoSerializado evento(long versao) {
+        return new PedidoEventoSerializado(delta(versao), new byte[0]);
+    }
+
+    private static PedidoEventoDTO delta(long versao) {
+        return PedidoEventoDTO.builder()
+                .tipo(PedidoEventoDTO.Tipo.PEDIDO_CRIADO)
+                .versao(versao)
+                .build();
+    }
+
+    private static List<Long> versoes(Optional<List<PedidoEventoSerializado>> eventos) {
+        assertThat(eventos).isPresent();
+        return eventos.get().stream().map(evento -> evento.evento().getVersao()).toList();
+    }
+}
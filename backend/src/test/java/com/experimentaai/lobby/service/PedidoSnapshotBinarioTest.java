@@ -0,0 +1,187 @@
+package com.experimentaai.lobby.service;
+
+import com.experimentaai.lobby.dto.PedidoResponseDTO;
+import com.experimentaai.lobby.entity.StatusPedido;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PedidoSnapshotBinarioTest {
+
+    private static final LocalDateTime CRIACAO = LocalDateTime.of(2026, 10, 17, 10, 0, 0, 123_456_789);
+
+    @Test
+    void decodificaOQueCodificou() throws IOException {
+        List<PedidoResponseDTO> pedidos = List.of(
+                pedido(1L, "Ana", StatusPedido.PREPARANDO, CRIACAO, CRIACAO),
+                pedido(2L, "João Ñandú 🍔", StatusPedido.PRONTO, CRIACAO, CRIACAO.plusMinutes(5)),
+                pedido(3L, "", StatusPedido.PREPARANDO, CRIACAO.minusYears(60), null));
+
+        assertThat(PedidoSnapshotBinario.decodificar(PedidoSnapshotBinario.codificar(pedidos)))
+                .isEqualTo(pedidos);
+    }
+
+    @Test
+    void preservaCamposNulos() throws IOException {
+        List<PedidoResponseDTO> pedidos = List.of(pedido(null, null, null, null, null));
+
+        assertThat(PedidoSnapshotBinario.decodificar(PedidoSnapshotBinario.codificar(pedidos)))
+                .isEqualTo(pedidos);
+    }
+
+    @Test
+    void decodificaListaVazia() throws IOException {
+        assertThat(PedidoSnapshotBinario.decodificar(PedidoSnapshotBinario.codificar(List.of()))).isEmpty();
+    }
+
+    @Test
+    void decodificaNomeComMaisDe64KiB() throws IOException {
+        String nome = "x".repeat(70_000);
+        List<PedidoResponseDTO> pedidos = List.of(pedido(1L, nome, StatusPedido.PREPARANDO, CRIACAO, CRIACAO));
+
+        assertThat(PedidoSnapshotBinario.decodificar(PedidoSnapshotBinario.codificar(pedidos)))
+                .singleElement()
+                .extracting(PedidoResponseDTO::getNomeCliente)
+                .isEqualTo(nome);
+    }
+
+    @Test
+    void decodificaFormatoVersao1() throws IOException {
+        byte[] nome = "Ana".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 2 + 4 + 2 * (8 + 1 + 12 + 12 + 2) + nome.length + 4);
+        buffer.putInt(0x4C504544).putShort((short) 1).putInt(2);
+        buffer.putLong(7L).put((byte) StatusPedido.PRONTO.ordinal());
+        escreverData(buffer, CRIACAO);
+        escreverData(buffer, CRIACAO.plusMinutes(1));
+        buffer.putShort((short) nome.length).put(nome);
+        buffer.putLong(8L).put((byte) StatusPedido.PREPARANDO.ordinal());
+        escreverData(buffer, CRIACAO);
+        buffer.putLong(Long.MIN_VALUE).putInt(0);
+        buffer.putShort((short) 0xFFFF);
+        buffer.putInt(crc(buffer.array(), buffer.position()));
+
+        assertThat(PedidoSnapshotBinario.decodificar(buffer.array())).containsExactly(
+                pedido(7L, "Ana", StatusPedido.PRONTO, CRIACAO, CRIACAO.plusMinutes(1)),
+                pedido(8L, null, StatusPedido.PREPARANDO, CRIACAO, null));
+    }
+
+    @Test
+    void recusaConteudoTruncado() {
+        byte[] completo = PedidoSnapshotBinario.codificar(List.of(
+                pedido(1L, "Ana", StatusPedido.PREPARANDO, CRIACAO, CRIACAO),
+                pedido(2L, "Bia", StatusPedido.PRONTO, CRIACAO, CRIACAO)));
+
+        for (int tamanho = 0; tamanho < completo.length; tamanho++) {
+            byte[] truncado = Arrays.copyOf(completo, tamanho);
+            assertThatThrownBy(() -> PedidoSnapshotBinario.decodificar(truncado))
+                    .as("truncado em %d bytes", tamanho)
+                    .isInstanceOf(IOException.class);
+        }
+    }
+
+    @Test
+    void recusaChecksumQueNaoConfere() {
+        byte[] conteudo = PedidoSnapshotBinario.codificar(List.of(
+                pedido(1L, "Ana", StatusPedido.PREPARANDO, CRIACAO, CRIACAO)));
+        conteudo[20] ^= 0x01;
+
+        assertThatThrownBy(() -> PedidoSnapshotBinario.decodificar(conteudo))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Checksum");
+    }
+
+    @Test
+    void recusaArquivoDeOutroFormato() {
+        byte[] conteudo = PedidoSnapshotBinario.codificar(List.of());
+        conteudo[0] = '[';
+        recalcularChecksum(conteudo);
+
+        assertThatThrownBy(() -> PedidoSnapshotBinario.decodificar(conteudo))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("não é um snapshot");
+    }
+
+    @Test
+    void recusaVersaoDesconhecida() {
+        byte[] conteudo = PedidoSnapshotBinario.codificar(List.of());
+        ByteBuffer.wrap(conteudo).putShort(4, (short) 3);
+        recalcularChecksum(conteudo);
+
+        assertThatThrownBy(() -> PedidoSnapshotBinario.decodificar(conteudo))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Versão 3");
+    }
+
+    @Test
+    void recusaStatusInvalidoMesmoComChecksumCorreto() {
+        byte[] conteudo = PedidoSnapshotBinario.codificar(List.of(
+                pedido(1L, "Ana", StatusPedido.PREPARANDO, CRIACAO, CRIACAO)));
+        // Status logo depois do cabeçalho (10 bytes) e do id (8 bytes)
+        conteudo[18] = 42;
+        recalcularChecksum(conteudo);
+
+        assertThatThrownBy(() -> PedidoSnapshotBinario.decodificar(conteudo))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Status 42");
+    }
+
+    @Test
+    void recusaTamanhoDeNomeAlemDoArquivo() {
+        byte[] conteudo = PedidoSnapshotBinario.codificar(List.of(
+                pedido(1L, "Ana", StatusPedido.PREPARANDO, CRIACAO, CRIACAO)));
+        // Tamanho do nome: cabeçalho (10) + id (8) + status (1) + duas datas (24)
+        ByteBuffer.wrap(conteudo).putInt(43, 1_000);
+        recalcularChecksum(conteudo);
+
+        assertThatThrownBy(() -> PedidoSnapshotBinario.decodificar(conteudo))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void recusaQuantidadeMaiorQueOConteudo() {
+        byte[] conteudo = PedidoSnapshotBinario.codificar(List.of(
+                pedido(1L, "Ana", StatusPedido.PREPARANDO, CRIACAO, CRIACAO)));
+        ByteBuffer.wrap(conteudo).putInt(6, Integer.MAX_VALUE);
+        recalcularChecksum(conteudo);
+
+        assertThatThrownBy(() -> PedidoSnapshotBinario.decodificar(conteudo))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Quantidade de pedidos inválida");
+    }
+
+    private static PedidoResponseDTO pedido(Long id, String nome, StatusPedido status,
+                                            LocalDateTime criacao, LocalDateTime atualizacao) {
+        return PedidoResponseDTO.builder()
+                .id(id)
+                .nomeCliente(nome)
+                .status(status)
+                .dataCriacao(criacao)
+                .dataAtualizacao(atualizacao)
+                .build();
+    }
+
+    private static void escreverData(ByteBuffer buffer, LocalDateTime data) {
+        buffer.putLong(data.toEpochSecond(ZoneOffset.UTC)).putInt(data.getNano());
+    }
+
+    private static void recalcularChecksum(byte[] conteudo) {
+        int fim = conteudo.length - 4;
+        ByteBuffer.wrap(conteudo).putInt(fim, crc(conteudo, fim));
+    }
+
+    private static int crc(byte[] conteudo, int tamanho) {
+        CRC32C crc = new CRC32C();
+        crc.update(conteudo, 0, tamanho);
+        return (int) crc.getValue();
+    }
+}
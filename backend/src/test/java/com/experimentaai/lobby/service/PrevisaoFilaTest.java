@@ -0,0 +1,141 @@
+package com.experimentaai.lobby.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrevisaoFilaTest {
+
+    @Test
+    void posicoesSeguemAOrdemDeEntrada() {
+        PrevisaoFila fila = filaCom(10L, 20L, 30L);
+
+        assertThat(fila.posicao(10L)).isEqualTo(1);
+        assertThat(fila.posicao(30L)).isEqualTo(3);
+        assertThat(fila.posicao(99L)).isZero();
+        assertThat(fila.entrar(20L)).isEqualTo(2);
+        assertThat(fila.tamanho()).isEqualTo(3);
+    }
+
+    @Test
+    void sairAlteraSoOsQueEstavamAtras() {
+        PrevisaoFila fila = filaCom(1L, 2L, 3L, 4L);
+        fila.idsAlterados();
+
+        fila.sair(2L);
+
+        assertThat(fila.posicao(2L)).isZero();
+        assertThat(fila.posicao(3L)).isEqualTo(2);
+        assertThat(fila.idsAlterados()).containsExactly(3L, 4L);
+        assertThat(fila.idsAlterados()).isEmpty();
+    }
+
+    @Test
+    void sairDoUltimoNaoAlteraNinguem() {
+        PrevisaoFila fila = filaCom(1L, 2L);
+        fila.idsAlterados();
+
+        fila.sair(2L);
+        fila.sair(99L);
+
+        assertThat(fila.idsAlterados()).isEmpty();
+        assertThat(fila.tamanho()).isEqualTo(1);
+    }
+
+    @Test
+    void filaQueEncolheDepoisDeUmaSaidaNaoQuebraIdsAlterados() {
+        PrevisaoFila fila = filaCom(1L, 2L, 3L);
+        fila.idsAlterados();
+
+        fila.sair(2L);
+        fila.sair(3L);
+
+        assertThat(fila.idsAlterados()).isEmpty();
+    }
+
+    @Test
+    void reconstruirSubstituiAFilaEMarcaTodosComoAlterados() {
+        PrevisaoFila fila = filaCom(1L, 2L);
+        fila.reconstruir(List.of(7L, 8L, 9L));
+
+        assertThat(fila.posicao(1L)).isZero();
+        assertThat(fila.posicao(9L)).isEqualTo(3);
+        assertThat(fila.idsAlterados()).containsExactly(7L, 8L, 9L);
+    }
+
+    @Test
+    void posicoesConferemComUmaListaDeReferencia() {
+        Random aleatorio = new Random(7);
+        PrevisaoFila fila = new PrevisaoFila(0, 0);
+        List<Long> referencia = new ArrayList<>();
+        long proximoId = 0;
+        // Menor id que saiu com alguém atrás; os ids crescem com a entrada na fila
+        long menorSaida = -1;
+        for (int operacao = 0; operacao < 50_000; operacao++) {
+            int sorteio = aleatorio.nextInt(10);
+            if (sorteio < 5) {
+                referencia.add(proximoId);
+                assertThat(fila.entrar(proximoId++)).isEqualTo(referencia.size());
+            } else if (sorteio < 9 && !referencia.isEmpty()) {
+                // Metade das saídas é do primeiro da fila, o caso comum
+                int indice = aleatorio.nextBoolean() ? 0 : aleatorio.nextInt(referencia.size());
+                long id = referencia.remove(indice);
+                fila.sair(id);
+                if (indice < referencia.size()) {
+                    menorSaida = menorSaida < 0 ? id : Math.min(menorSaida, id);
+                }
+            } else {
+                long limite = menorSaida;
+                List<Long> esperados = limite < 0 ? List.of()
+                        : referencia.stream().filter(id -> id > limite).toList();
+                assertThat(fila.idsAlterados()).isEqualTo(esperados);
+                menorSaida = -1;
+            }
+            assertThat(fila.tamanho()).isEqualTo(referencia.size());
+            if (!referencia.isEmpty()) {
+                int indice = aleatorio.nextInt(referencia.size());
+                assertThat(fila.posicao(referencia.get(indice))).isEqualTo(indice + 1);
+            }
+        }
+    }
+
+    @Test
+    void previsaoEhOMaisTardeEntreTempoDePreparoEFila() {
+        PrevisaoFila fila = new PrevisaoFila(300_000, 60_000);
+
+        // Recém-criado, primeiro da fila: vale o tempo de preparo
+        assertThat(fila.prever(1_000_000, 1, 1_000_000)).isEqualTo(1_300_000);
+        // Décimo da fila: vale o intervalo entre prontos
+        assertThat(fila.prever(1_000_000, 10, 1_000_000)).isEqualTo(1_600_000);
+    }
+
+    @Test
+    void estimativasSeguemAMediaMovelDosProntos() {
+        PrevisaoFila fila = new PrevisaoFila(100_000, 50_000);
+
+        fila.registrarPronto(0, 200_000);
+        assertThat(fila.getTempoPreparoMs()).isEqualTo(120_000);
+        // Primeiro pronto: ainda não há intervalo medido
+        assertThat(fila.getIntervaloEntreProntosMs()).isEqualTo(50_000);
+
+        fila.registrarPronto(150_000, 300_000);
+        assertThat(fila.getTempoPreparoMs()).isEqualTo(126_000);
+        assertThat(fila.getIntervaloEntreProntosMs()).isEqualTo(60_000);
+
+        // Cozinha ociosa antes deste pedido: o intervalo conta desde a criação dele
+        fila.registrarPronto(900_000, 910_000);
+        assertThat(fila.getIntervaloEntreProntosMs()).isEqualTo(50_000);
+    }
+
+    private static PrevisaoFila filaCom(Long... ids) {
+        PrevisaoFila fila = new PrevisaoFila(0, 0);
+        for (Long id : ids) {
+            fila.entrar(id);
+        }
+        return fila;
+    }
+}
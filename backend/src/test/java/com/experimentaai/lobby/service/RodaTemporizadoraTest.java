@@ -0,0 +1,126 @@
+package com.experimentaai.lobby.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RodaTemporizadoraTest {
+
+    private static final long TICK_MS = 100;
+
+    @Test
+    void expiraNoPrimeiroTickAPartirDoPrazo() {
+        RodaTemporizadora<String> roda = new RodaTemporizadora<>(TICK_MS, 8, 0);
+        roda.agendar("a", 250);
+
+        assertThat(roda.avancar(200)).isEmpty();
+        assertThat(roda.avancar(299)).isEmpty();
+        assertThat(roda.avancar(300)).containsExactly("a");
+        assertThat(roda.tamanho()).isZero();
+        assertThat(roda.avancar(1_000)).isEmpty();
+    }
+
+    @Test
+    void prazoExatoNoTickExpiraNesseTick() {
+        RodaTemporizadora<String> roda = new RodaTemporizadora<>(TICK_MS, 8, 0);
+        roda.agendar("a", 300);
+
+        assertThat(roda.avancar(299)).isEmpty();
+        assertThat(roda.avancar(300)).containsExactly("a");
+    }
+
+    @Test
+    void prazoVariasVoltasAFrenteEsperaAVoltaCerta() {
+        RodaTemporizadora<String> roda = new RodaTemporizadora<>(TICK_MS, 8, 0);
+        roda.agendar("a", 10_000);
+
+        for (long agora = TICK_MS; agora < 10_000; agora += TICK_MS) {
+            assertThat(roda.avancar(agora)).as("em %d ms", agora).isEmpty();
+        }
+        assertThat(roda.avancar(10_000)).containsExactly("a");
+    }
+
+    @Test
+    void avancoMaiorQueUmaVoltaExpiraTodosOsVencidos() {
+        RodaTemporizadora<String> roda = new RodaTemporizadora<>(TICK_MS, 8, 0);
+        roda.agendar("a", 150);
+        roda.agendar("b", 5_000);
+        roda.agendar("c", 60_000);
+
+        assertThat(roda.avancar(20_000)).containsExactlyInAnyOrder("a", "b");
+        assertThat(roda.tamanho()).isEqualTo(1);
+        assertThat(roda.avancar(60_000)).containsExactly("c");
+    }
+
+    @Test
+    void prazoJaVencidoExpiraNoProximoAvanco() {
+        RodaTemporizadora<String> roda = new RodaTemporizadora<>(TICK_MS, 8, 1_000);
+        roda.agendar("a", 0);
+
+        assertThat(roda.avancar(1_050)).isEmpty();
+        assertThat(roda.avancar(1_100)).containsExactly("a");
+    }
+
+    @Test
+    void cancelarEReagendar() {
+        RodaTemporizadora<String> roda = new RodaTemporizadora<>(TICK_MS, 8, 0);
+        roda.agendar("a", 200);
+        roda.agendar("b", 200);
+
+        assertThat(roda.cancelar("a")).isTrue();
+        assertThat(roda.cancelar("a")).isFalse();
+        roda.agendar("b", 900);
+        assertThat(roda.tamanho()).isEqualTo(1);
+        assertThat(roda.avancar(500)).isEmpty();
+        assertThat(roda.avancar(900)).containsExactly("b");
+    }
+
+    @Test
+    void limparDescartaTodosOsPrazos() {
+        RodaTemporizadora<String> roda = new RodaTemporizadora<>(TICK_MS, 8, 0);
+        roda.agendar("a", 200);
+        roda.agendar("b", 5_000);
+        roda.limpar();
+
+        assertThat(roda.tamanho()).isZero();
+        assertThat(roda.avancar(10_000)).isEmpty();
+    }
+
+    @Test
+    void nuncaExpiraAntesDoPrazoNemMaisDeUmTickDepois() {
+        Random aleatorio = new Random(42);
+        RodaTemporizadora<Integer> roda = new RodaTemporizadora<>(TICK_MS, 16, 0);
+        Map<Integer, Long> prazos = new HashMap<>();
+        for (int chave = 0; chave < 2_000; chave++) {
+            long prazo = aleatorio.nextInt(20_000);
+            prazos.put(chave, prazo);
+            roda.agendar(chave, prazo);
+        }
+
+        List<Integer> expiradas = new ArrayList<>();
+        long agora = 0;
+        while (agora < 25_000) {
+            agora += 1 + aleatorio.nextInt(700);
+            for (Integer chave : roda.avancar(agora)) {
+                long prazo = prazos.get(chave);
+                assertThat(agora).as("chave %d com prazo %d", chave, prazo).isGreaterThanOrEqualTo(prazo);
+                expiradas.add(chave);
+            }
+            // Tudo o que ainda está na roda tem prazo depois do início do tick atual
+            long inicioTick = agora / TICK_MS * TICK_MS;
+            prazos.forEach((chave, prazo) -> {
+                if (!expiradas.contains(chave)) {
+                    assertThat(prazo).as("chave %d não expirada em %d", chave, inicioTick).isGreaterThan(inicioTick);
+                }
+            });
+        }
+        assertThat(expiradas).hasSize(prazos.size()).doesNotHaveDuplicates();
+        assertThat(roda.tamanho()).isZero();
+    }
+}
@@ -161,7 +161,7 @@ const useOrderAnimation = (animacaoConfig, isModoGestor, carregarPedidos, setPed
             return;
         }
         
-        let pollingInterval = null;
+        let pollingAtivo = false;
         let verificarConexaoSSE = null;
 
         // Processar fila de eventos sequencialmente
@@ -496,11 +496,11 @@ const useOrderAnimation = (animacaoConfig, isModoGestor, carregarPedidos, setPed
             animacaoIntervalRef.current = setInterval(animar, animacaoConfigRef.current.intervaloAnimacao * 1000);
         };
 
-        // Polling inteligente como fallback (apenas se SSE não conectar)
+        // Long-polling como fallback (apenas se SSE não conectar)
         const iniciarPollingInteligente = () => {
-            if (pollingInterval) {
-                clearInterval(pollingInterval);
-                pollingInterval = null;
+            if (pollingAtivo) {
+                pedidoService.pararLongPolling();
+                pollingAtivo = false;
             }
 
             // Não iniciar polling se SSE já está conectado
@@ -509,33 +509,20 @@ const useOrderAnimation = (animacaoConfig, isModoGestor, carregarPedidos, setPed
                 return;
             }
 
-            // Polling adaptativo: mais frequente quando animação ativa, menos quando inativa
-            const intervaloPolling = (animacaoConfigRef.current.animacaoAtivada && !isModoGestorRef.current) ? 5000 : 10000; // 5s ou 10s (mais conservador)
-
-            console.log(`⏱️ [POLLING] Iniciando polling inteligente (${intervaloPolling}ms)`);
-            pollingInterval = setInterval(async () => {
+            // Long-polling: o servidor segura a requisição até a versão dos pedidos mudar,
+            // então o fallback recebe mudanças quase em tempo real sem requisições à toa
+            console.log("⏱️ [LONG-POLLING] Iniciando long-polling como fallback do SSE");
+            pollingAtivo = true;
+            pedidoService.iniciarLongPolling((dados) => {
                 // Verificar novamente se SSE conectou
                 if (sseConnectedRef.current || pedidoService.isSSEConectado()) {
-                    console.log("📡 [POLLING] SSE conectou, parando polling");
-                    if (pollingInterval) {
-                        clearInterval(pollingInterval);
-                        pollingInterval = null;
-                    }
+                    console.log("📡 [LONG-POLLING] SSE conectou, parando long-polling");
+                    pedidoService.pararLongPolling();
+                    pollingAtivo = false;
                     return;
                 }
-
-                // Evitar processamento se já está processando
-                if (processandoRef.current) {
-                    console.log("⏱️ [POLLING] Processamento em andamento, pulando");
-                    return;
-                }
-
-                console.log("⏱️ [POLLING] Verificação inteligente...");
-                const result = await carregarPedidosRef.current(true); // Forçar atualização no polling
-                if (result && result.dados) {
-                    processarAtualizacaoPedidos(result.dados, 'POLLING');
-                }
-            }, intervaloPolling);
+                processarAtualizacaoPedidos(dados, 'LONG-POLLING');
+            });
         };
 
         // Handlers SSE - SISTEMA REATIVO (como signals do Angular)
@@ -548,10 +535,10 @@ const useOrderAnimation = (animacaoConfig, isModoGestor, carregarPedidos, setPed
                 console.log("📡 [SSE] ✅ Conexão reativa estabelecida - sistema funcionando como signals do Angular");
                 
                 // Parar polling se estiver rodando (SSE é a fonte de verdade)
-                if (pollingInterval) {
-                    clearInterval(pollingInterval);
-                    pollingInterval = null;
-                    console.log("📡 [SSE] Polling parado - SSE reativo ativo");
+                if (pollingAtivo) {
+                    pedidoService.pararLongPolling();
+                    pollingAtivo = false;
+                    console.log("📡 [SSE] Long-polling parado - SSE reativo ativo");
                 }
             }
 
@@ -580,7 +567,7 @@ const useOrderAnimation = (animacaoConfig, isModoGestor, carregarPedidos, setPed
             sseConnectedRef.current = false;
             
             // Iniciar polling apenas se não estiver rodando
-            if (!pollingInterval) {
+            if (!pollingAtivo) {
                 console.log("📡 [SSE] Ativando polling inteligente como fallback");
                 iniciarPollingInteligente();
             }
@@ -630,9 +617,9 @@ const useOrderAnimation = (animacaoConfig, isModoGestor, carregarPedidos, setPed
         return () => {
             console.log("📡 [HYBRID] Limpando recursos do SSE...");
             pedidoService.desconectarSSE();
-            if (pollingInterval) {
-                clearInterval(pollingInterval);
-                pollingInterval = null;
+            if (pollingAtivo) {
+                pedidoService.pararLongPolling();
+                pollingAtivo = false;
             }
             if (verificarConexaoSSE) {
                 clearTimeout(verificarConexaoSSE);
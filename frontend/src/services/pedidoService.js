@@ -4,6 +4,11 @@ const API_BASE_URL = '/api/pedidos';
 const CACHE_API_URL = '/api/cache';
 
 // Classe para gerenciar Server-Sent Events
+// O backend envia um snapshot (PEDIDOS_SNAPSHOT) ao conectar e depois apenas eventos delta
+// (PEDIDO_CRIADO, PEDIDO_PRONTO, PEDIDO_REMOVIDO) com versão crescente; rajadas de mutações chegam
+// agrupadas em um único PEDIDOS_LOTE. Aqui os deltas são aplicados sobre o estado local e
+// repassados como lista completa (PEDIDOS_ATUALIZADOS).
+// Ao reconectar após uma queda, o id do último evento é enviado para receber apenas os deltas perdidos.
 class SseManager {
   constructor() {
     this.eventSource = null;
@@ -11,20 +16,83 @@ class SseManager {
     this.reconnectAttempts = 0;
     this.maxReconnectAttempts = 5;
     this.reconnectDelay = 1000;
+    this.pedidos = new Map();
+    this.versao = null;
+    this.ultimoEventoId = null;
+    this.onEstatisticas = null;
   }
 
-  connect(onMessage, onError) {
+  // Aplica snapshot/delta/lote e devolve a lista atualizada, ou null se o evento deve ser ignorado
+  aplicarEvento(data, onMessage, onError) {
+    if (data.tipo === 'PEDIDOS_SNAPSHOT') {
+      this.pedidos = new Map((data.pedidos || []).map(p => [p.id, p]));
+      this.versao = data.versao;
+    } else if (data.tipo === 'PEDIDOS_LOTE') {
+      const versaoAnterior = this.versao;
+      for (const delta of data.eventos || []) {
+        if (this.aplicarDelta(delta, onMessage, onError) === false) return null;
+      }
+      if (this.versao === versaoAnterior) return null;
+    } else if (data.tipo === 'PEDIDO_CRIADO' || data.tipo === 'PEDIDO_PRONTO' || data.tipo === 'PEDIDO_REMOVIDO') {
+      if (!this.aplicarDelta(data, onMessage, onError)) return null;
+    } else {
+      // Formato antigo (lista completa): repassar como veio
+      return data;
+    }
+    return { tipo: 'PEDIDOS_ATUALIZADOS', versao: this.versao, dados: Array.from(this.pedidos.values()) };
+  }
+
+  // Aplica um delta: true se aplicado, null se já aplicado/sem snapshot, false se houve buraco na versão
+  aplicarDelta(data, onMessage, onError) {
+    if (this.versao === null || data.versao <= this.versao) {
+      // Ainda sem snapshot ou evento já aplicado
+      return null;
+    }
+    if (data.versao !== this.versao + 1) {
+      // Perdemos algum delta: reconectar para receber um novo snapshot
+      console.warn(`📡 SSE: Versão ${data.versao} fora de sequência (atual ${this.versao}), ressincronizando`);
+      this.connect(onMessage, onError, false);
+      return false;
+    }
+    if (data.tipo === 'PEDIDO_REMOVIDO') {
+      this.pedidos.delete(data.pedido.id);
+    } else {
+      this.pedidos.set(data.pedido.id, data.pedido);
+    }
+    // Pedidos que mudaram de posição na fila de preparo por causa deste delta
+    for (const previsao of data.previsoes || []) {
+      const pedido = this.pedidos.get(previsao.id);
+      if (pedido) {
+        this.pedidos.set(previsao.id, { ...pedido, posicaoFila: previsao.posicaoFila, previsaoPronto: previsao.previsaoPronto });
+      }
+    }
+    this.versao = data.versao;
+    return true;
+  }
+
+  // retomar: reaproveita o estado local e pede ao servidor só os eventos após o último recebido
+  connect(onMessage, onError, retomar = false) {
     if (this.eventSource) {
       this.disconnect();
     }
+    if (!retomar || this.versao === null) {
+      this.pedidos = new Map();
+      this.versao = null;
+      this.ultimoEventoId = null;
+    }
 
     try {
-      this.eventSource = new EventSource(`${CACHE_API_URL}/pedidos/stream`);
+      const url = this.ultimoEventoId
+        ? `${CACHE_API_URL}/pedidos/stream?ultimoEventoId=${encodeURIComponent(this.ultimoEventoId)}`
+        : `${CACHE_API_URL}/pedidos/stream`;
+      this.eventSource = new EventSource(url);
 
       // Capturar eventos nomeados (pedidos-update)
       this.eventSource.addEventListener('pedidos-update', (event) => {
         try {
-          const data = JSON.parse(event.data);
+          const data = this.aplicarEvento(JSON.parse(event.data), onMessage, onError);
+          if (event.lastEventId && this.versao !== null) this.ultimoEventoId = event.lastEventId;
+          if (!data) return;
           console.log('📡 SSE: Recebida atualização em tempo real (evento nomeado):', data);
           if (onMessage) onMessage(data);
         } catch (error) {
@@ -32,10 +100,21 @@ class SseManager {
         }
       });
 
+      // Estatísticas de preparo (ESTATISTICAS_PREPARO): não alteram a lista de pedidos
+      this.eventSource.addEventListener('estatisticas-update', (event) => {
+        try {
+          const data = JSON.parse(event.data);
+          if (this.onEstatisticas) this.onEstatisticas(data.estatisticas);
+        } catch (error) {
+          console.error('📡 SSE: Erro ao processar estatísticas:', error);
+        }
+      });
+
       // Também capturar eventos sem nome como fallback
       this.eventSource.onmessage = (event) => {
         try {
-          const data = JSON.parse(event.data);
+          const data = this.aplicarEvento(JSON.parse(event.data), onMessage, onError);
+          if (!data) return;
           console.log('📡 SSE: Recebida atualização em tempo real (evento padrão):', data);
           if (onMessage) onMessage(data);
         } catch (error) {
@@ -56,7 +135,7 @@ class SseManager {
         if (this.reconnectAttempts < this.maxReconnectAttempts) {
           this.reconnectAttempts++;
           console.log(`📡 SSE: Tentando reconectar em ${this.reconnectDelay}ms (tentativa ${this.reconnectAttempts})`);
-          setTimeout(() => this.connect(onMessage, onError), this.reconnectDelay);
+          setTimeout(() => this.connect(onMessage, onError, true), this.reconnectDelay);
         } else {
           console.error('📡 SSE: Máximo de tentativas de reconexão atingido');
         }
@@ -84,6 +163,66 @@ class SseManager {
 // Instância singleton do gerenciador SSE
 const sseManager = new SseManager();
 
+// Long-polling para quando o SSE não funciona (proxies/navegadores que derrubam a conexão).
+// Cada requisição fica estacionada no servidor até a versão dos pedidos mudar ou o timeout expirar.
+class LongPollManager {
+  constructor() {
+    this.controller = null;
+    this.epoca = null;
+    this.versao = null;
+    this.retryDelay = 1000;
+    this.maxRetryDelay = 10000;
+  }
+
+  async start(onDados) {
+    if (this.controller) return;
+    // Cada start tem o seu controller: stop() aborta a requisição pendente, e um loop antigo
+    // que acordar depois de um novo start vê o próprio sinal abortado e termina
+    const controller = new AbortController();
+    this.controller = controller;
+    const { signal } = controller;
+    this.epoca = null;
+    this.versao = null;
+    let espera = this.retryDelay;
+
+    while (!signal.aborted) {
+      try {
+        // A versão só vale junto com a época: após um restart do servidor as versões recomeçam
+        const params = this.versao !== null ? { epoca: this.epoca, versao: this.versao } : {};
+        const response = await axios.get(`${CACHE_API_URL}/pedidos/aguardar`, { params, signal });
+        if (signal.aborted) break;
+        espera = this.retryDelay;
+        const data = response.data;
+        if (data && data.versao !== undefined) {
+          this.epoca = data.epoca ?? null;
+          this.versao = data.versao;
+        }
+        if (data && data.houveMudancas && Array.isArray(data.dados)) {
+          onDados(data.dados);
+        }
+      } catch (error) {
+        if (signal.aborted) break;
+        console.warn(`⏱️ Long-polling: erro (${error.message}), tentando novamente em ${espera}ms`);
+        await new Promise(resolve => setTimeout(resolve, espera));
+        espera = Math.min(espera * 2, this.maxRetryDelay);
+      }
+    }
+  }
+
+  stop() {
+    if (this.controller) {
+      this.controller.abort();
+      this.controller = null;
+    }
+  }
+}
+
+const longPollManager = new LongPollManager();
+
+// Último ETag/lista recebidos de /api/cache/pedidos: polls sem mudança recebem 304 sem corpo
+let cachePedidosEtag = null;
+let cachePedidosDados = null;
+
 const pedidoService = {
   // Salvar no cache (no sistema de arquivos via backend)
   salvarCache: async (pedidos) => {
@@ -119,9 +258,18 @@ const pedidoService = {
   // Carregar do cache (do sistema de arquivos via backend)
   carregarCache: async () => {
     try {
-      const response = await axios.get(`${CACHE_API_URL}/pedidos`);
+      const response = await axios.get(`${CACHE_API_URL}/pedidos`, {
+        headers: cachePedidosEtag && cachePedidosDados ? { 'If-None-Match': cachePedidosEtag } : {},
+        validateStatus: (status) => (status >= 200 && status < 300) || status === 304
+      });
+      if (response.status === 304) {
+        console.log('ℹ️ Cache de pedidos sem mudanças (304)');
+        return cachePedidosDados;
+      }
       if (response.status === 200 && response.data) {
         console.log(`✅ Cache carregado do sistema de arquivos: ${Array.isArray(response.data) ? response.data.length : 'dados'} pedidos`);
+        cachePedidosEtag = response.headers?.etag || null;
+        cachePedidosDados = response.data;
         return response.data;
       }
     } catch (error) {
@@ -285,6 +433,36 @@ const pedidoService = {
     console.log('✅ Pedido removido (backend já atualiza o cache automaticamente)');
   },
 
+  // Operações em lote: uma requisição, uma gravação e um único evento SSE para todos os pedidos.
+  // A resposta traz o resultado de cada item (CRIADO, PRONTO, REMOVIDO, INALTERADO, NAO_ENCONTRADO).
+  criarPedidos: async (nomesClientes) => {
+    const response = await axios.post(`${API_BASE_URL}/lote`, {
+      pedidos: nomesClientes.map(nomeCliente => ({ nomeCliente }))
+    });
+    return response.data;
+  },
+
+  marcarComoProntos: async (ids) => {
+    const response = await axios.put(`${API_BASE_URL}/lote/pronto`, { ids });
+    return response.data;
+  },
+
+  removerPedidos: async (ids) => {
+    const response = await axios.delete(`${API_BASE_URL}/lote`, { data: { ids } });
+    return response.data;
+  },
+
+  // Tempo de preparo (média e percentis) e pedidos por minuto da janela recente
+  obterEstatisticas: async () => {
+    const response = await axios.get(`${API_BASE_URL}/estatisticas`);
+    return response.data;
+  },
+
+  // Recebe as estatísticas enviadas pelo SSE (a cada pedido pronto e periodicamente)
+  aoReceberEstatisticas: (callback) => {
+    sseManager.onEstatisticas = callback;
+  },
+
   // Server-Sent Events para atualizações em tempo real
   conectarSSE: (onPedidoUpdate, onError) => {
     sseManager.connect(onPedidoUpdate, onError);
@@ -296,6 +474,15 @@ const pedidoService = {
 
   isSSEConectado: () => {
     return sseManager.isConnected();
+  },
+
+  // Long-polling como fallback do SSE
+  iniciarLongPolling: (onDados) => {
+    longPollManager.start(onDados);
+  },
+
+  pararLongPolling: () => {
+    longPollManager.stop();
   }
 };
 